@@ -0,0 +1,65 @@
+package com.fathzer.soft.jclop.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.MockCloudService;
+
+/** Benchmarks of the loading of the accounts stored in the cache root.
+ * <br>Each invocation creates a new service on an existing cache root, then loads all its accounts.
+ * <br>Reading the account folders is I/O bound, several forks are required to obtain a narrow confidence interval.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class AccountLoadingBenchmark {
+	/** The number of accounts in the cache root. */
+	@Param({"10", "1000", "10000"})
+	public int accounts;
+
+	private File root;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		root = Benchmarks.createTempFolder();
+		MockCloudService service = new MockCloudService(root);
+		for (int i = 0; i < accounts; i++) {
+			service.newAccount("account"+i, "Account "+i, "token"+i); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Benchmarks.delete(root);
+	}
+
+	@Benchmark
+	public MockCloudService create() throws IOException {
+		return new MockCloudService(root);
+	}
+
+	@Benchmark
+	public Collection<Account> loadAll() throws IOException {
+		return new MockCloudService(root).getAccounts();
+	}
+}
@@ -0,0 +1,56 @@
+package com.fathzer.soft.jclop.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import com.fathzer.soft.jclop.Service;
+
+/** Utilities shared by the benchmarks. */
+final class Benchmarks {
+	private Benchmarks() {
+		super();
+	}
+
+	/** Creates an empty temporary folder.
+	 * @return a folder
+	 * @throws IOException if the folder can't be created
+	 */
+	static File createTempFolder() throws IOException {
+		File folder = File.createTempFile("jclop-bench", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		if (!folder.delete() || !folder.mkdir()) {
+			throw new IOException("Unable to create "+folder);
+		}
+		return folder;
+	}
+
+	/** Deletes a file or a folder and all its content.
+	 * @param file The file to delete
+	 */
+	static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files!=null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/** Writes the local cache of an URI.
+	 * @param service The service
+	 * @param uri The URI
+	 * @param data The data to write
+	 * @throws IOException if the cache can't be written
+	 */
+	static void write(Service service, URI uri, byte[] data) throws IOException {
+		OutputStream out = new FileOutputStream(service.getLocalFileForWriting(uri));
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+	}
+}
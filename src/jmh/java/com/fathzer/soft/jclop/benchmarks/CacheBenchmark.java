@@ -0,0 +1,109 @@
+package com.fathzer.soft.jclop.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Entry;
+import com.fathzer.soft.jclop.MockCloudService;
+
+/** Benchmarks of the local cache lookups.
+ * <br>The account contains a variable number of cached entries, half of them are synchronized.
+ * Each invocation works on the next entry, so that the results do not depend on a single entry staying in a CPU cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class CacheBenchmark {
+	private static final byte[] DATA = new byte[16];
+
+	/** The number of cached entries. */
+	@Param({"10", "1000", "100000"})
+	public int entries;
+
+	private File root;
+	private MockCloudService service;
+	private Account account;
+	private Entry[] cached;
+	private URI[] uris;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		root = Benchmarks.createTempFolder();
+		service = new MockCloudService(root);
+		account = service.newAccount("benchmark", "Benchmark", "token"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		cached = new Entry[entries];
+		uris = new URI[entries];
+		for (int i = 0; i < entries; i++) {
+			cached[i] = new Entry(account, "entry"+i); //$NON-NLS-1$
+			uris[i] = service.getURI(cached[i]);
+			Benchmarks.write(service, uris[i], DATA);
+			if (i%2==0) {
+				service.setLocalRevision(uris[i], "1"); //$NON-NLS-1$
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Benchmarks.delete(root);
+	}
+
+	private int next() {
+		index = (index+1)%entries;
+		return index;
+	}
+
+	@Benchmark
+	public File getLocalFile() {
+		return service.getLocalFile(uris[next()]);
+	}
+
+	@Benchmark
+	public String getLocalRevision() {
+		return service.getLocalRevision(uris[next()]);
+	}
+
+	@Benchmark
+	public boolean isSynchronized() {
+		return service.isSynchronized(uris[next()]);
+	}
+
+	@Benchmark
+	public Entry uriRoundTrip() {
+		return service.getEntry(service.getURI(cached[next()]));
+	}
+
+	/** Lists the cached entries.
+	 * <br>This benchmark reads the cache folders, it runs in more forks and longer iterations than the lookups.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 5, time = 2)
+	@Measurement(iterations = 10, time = 2)
+	@Fork(3)
+	public Collection<Entry> getLocalEntries() {
+		return account.getLocalEntries();
+	}
+}
@@ -0,0 +1,91 @@
+package com.fathzer.soft.jclop.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Entry;
+import com.fathzer.soft.jclop.JClopException;
+import com.fathzer.soft.jclop.MockCloudService;
+import com.fathzer.soft.jclop.SynchronizationState;
+
+/** Benchmarks of the synchronization against an in-memory service (no latency, no bandwidth limit).
+ * <br>They measure the overhead of JClop itself: revision checks, cache file renaming, signatures and hashes, etc.
+ * <br>As they write files, their results vary a lot from one iteration, and one JVM, to another. They run in several forks
+ * with many iterations, so that the confidence interval is narrow enough to detect a regression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class SynchronizeBenchmark {
+	private static final String ACCOUNT_ID = "benchmark"; //$NON-NLS-1$
+	private static final String NAME = "entry"; //$NON-NLS-1$
+
+	/** The size of the synchronized file. */
+	@Param({"1024", "1048576"})
+	public int size;
+
+	private File root;
+	private MockCloudService service;
+	private URI uri;
+	private byte[] data;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, JClopException {
+		root = Benchmarks.createTempFolder();
+		service = new MockCloudService(root);
+		// Always ask the service for the remote revision
+		service.setRemoteRevisionTTL(0);
+		Account account = service.newAccount(ACCOUNT_ID, "Benchmark", "token"); //$NON-NLS-1$ //$NON-NLS-2$
+		uri = service.getURI(new Entry(account, NAME));
+		data = new byte[size];
+		service.putRemote(ACCOUNT_ID, NAME, data);
+		service.synchronize(uri, null, null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Benchmarks.delete(root);
+	}
+
+	/** Synchronizes an entry that is already synchronized. */
+	@Benchmark
+	public SynchronizationState upToDate() throws IOException, JClopException {
+		return service.synchronize(uri, null, null);
+	}
+
+	/** Synchronizes an entry modified remotely (the entry is downloaded). */
+	@Benchmark
+	public SynchronizationState remoteChange() throws IOException, JClopException {
+		service.putRemote(ACCOUNT_ID, NAME, data);
+		return service.synchronize(uri, null, null);
+	}
+
+	/** Synchronizes an entry modified locally (the entry is uploaded). */
+	@Benchmark
+	public SynchronizationState localChange() throws IOException, JClopException {
+		// Change the content, otherwise the service would detect the cache was rewritten with the same data
+		data[0]++;
+		Benchmarks.write(service, uri, data);
+		return service.synchronize(uri, null, null);
+	}
+}
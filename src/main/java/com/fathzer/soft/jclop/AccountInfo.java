@@ -0,0 +1,201 @@
+package com.fathzer.soft.jclop;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/** The metadata of an account (its display name and connection data), as stored in the account's cache folder.
+ * <br>The metadata is stored in a compact versioned binary format. The connection data is encoded by the service
+ * (see {@link Service#encodeConnectionData(Serializable)}), no Java serialization is involved.
+ * <br>Files written by previous versions with Java serialization are still readable, they are flagged as legacy in order to be
+ * rewritten in the current format. Only a restricted set of classes can be read from such files (see {@link Service#isLegacyConnectionDataClass(String)}).
+ * <br>The file is written in a temporary file, then renamed, so a failure while writing never destroys the previous file.
+ */
+final class AccountInfo {
+	/** "JCLA" */
+	private static final int MAGIC = 0x4A434C41;
+	private static final int VERSION = 1;
+	/** The first bytes of a Java serialization stream. */
+	private static final int SERIALIZATION_MAGIC = 0xACED;
+	/** The classes that can be read from a legacy file: Strings, boxed primitives and arrays of primitives. */
+	private static final Set<String> LEGACY_CLASSES = new HashSet<String>(Arrays.asList(
+			"java.lang.String", "java.lang.Number", "java.lang.Boolean", "java.lang.Character", "java.lang.Byte", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"[Z", "[B", "[C", "[S", "[I", "[J", "[F", "[D")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+
+	/** The stream that reads legacy files.
+	 * <br>It refuses to instantiate the classes that are not allowed, so a tampered file can't trigger the code of arbitrary classes.
+	 */
+	private static final class LegacyInputStream extends ObjectInputStream {
+		private final Service service;
+
+		private LegacyInputStream(InputStream in, Service service) throws IOException {
+			super(in);
+			this.service = service;
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!LEGACY_CLASSES.contains(desc.getName()) && !service.isLegacyConnectionDataClass(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "Class is not allowed in an account file"); //$NON-NLS-1$
+			}
+			return super.resolveClass(desc);
+		}
+	}
+
+	private final String displayName;
+	private final Serializable connectionData;
+	private final boolean legacy;
+
+	AccountInfo(String displayName, Serializable connectionData) {
+		this(displayName, connectionData, false);
+	}
+
+	private AccountInfo(String displayName, Serializable connectionData, boolean legacy) {
+		this.displayName = displayName;
+		this.connectionData = connectionData;
+		this.legacy = legacy;
+	}
+
+	String getDisplayName() {
+		return displayName;
+	}
+
+	Serializable getConnectionData() {
+		return connectionData;
+	}
+
+	/** Tests whether this metadata was read from a file in the legacy format.
+	 * @return true if the file should be written again in the current format.
+	 */
+	boolean isLegacy() {
+		return legacy;
+	}
+
+	/** Reads account metadata.
+	 * @param file The file
+	 * @param service The service that decodes the connection data
+	 * @return The metadata
+	 * @throws IOException If the file can't be read or is not valid
+	 */
+	static AccountInfo read(File file, Service service) throws IOException {
+		File tmp = getTmpFile(file);
+		if (!file.exists() && tmp.isFile()) {
+			// A crash occurred after the previous file was deleted, but before the new one was renamed
+			// The temporary file is complete (the previous file is deleted only after it is written)
+			tmp.renameTo(file);
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			in.mark(2);
+			int header = (in.read()<<8) | in.read();
+			in.reset();
+			if (header==SERIALIZATION_MAGIC) {
+				return readLegacy(in, service);
+			}
+			DataInputStream data = new DataInputStream(in);
+			if (data.readInt()!=MAGIC) {
+				throw new IOException("Invalid account file "+file);
+			}
+			int version = data.readInt();
+			if (version!=VERSION) {
+				throw new IOException("Unsupported account file version "+version);
+			}
+			String displayName = readString(data);
+			String encoded = readString(data);
+			return new AccountInfo(displayName, encoded==null?null:service.decodeConnectionData(encoded));
+		} finally {
+			in.close();
+		}
+	}
+
+	private static AccountInfo readLegacy(InputStream in, Service service) throws IOException {
+		ObjectInputStream stream = new LegacyInputStream(in, service);
+		try {
+			String displayName = (String) stream.readObject();
+			Serializable connectionData = (Serializable) stream.readObject();
+			return new AccountInfo(displayName, connectionData, true);
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} catch (ClassCastException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/** Writes this metadata.
+	 * @param file The file
+	 * @param service The service that encodes the connection data
+	 * @throws IOException If the file can't be written
+	 */
+	void write(File file, Service service) throws IOException {
+		// Everything is encoded before the file is touched, so an error in the service's encoding leaves the previous file unchanged
+		String encoded;
+		try {
+			encoded = connectionData==null?null:service.encodeConnectionData(connectionData);
+		} catch (RuntimeException e) {
+			throw new IOException("Unable to encode the connection data of "+displayName, e);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, displayName);
+		writeString(out, encoded);
+		File tmp = getTmpFile(file);
+		try {
+			FileOutputStream stream = new FileOutputStream(tmp);
+			try {
+				bytes.writeTo(stream);
+				stream.getFD().sync();
+			} finally {
+				stream.close();
+			}
+			if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+				throw new IOException("Unable to rename "+tmp+" to "+file);
+			}
+		} catch (IOException e) {
+			if (file.exists()) {
+				// If the previous file was deleted, the temporary file is the only copy (see read)
+				tmp.delete();
+			}
+			throw e;
+		}
+	}
+
+	private static File getTmpFile(File file) {
+		return new File(file.getParent(), file.getName()+".tmp"); //$NON-NLS-1$
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length<0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, Service.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value==null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(Service.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+}
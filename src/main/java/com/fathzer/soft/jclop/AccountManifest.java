@@ -0,0 +1,317 @@
+package com.fathzer.soft.jclop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** The manifest of an account's cache.
+ * <br>It records, for every cached entry, the name of the file that holds its data (the name encodes the revision and
+ * the synchronization state), its size and its modification date. It allows to list the cached entries of an account and to know their state
+ * by reading one file, instead of listing every entry's folder.
+ * <br>The manifest is stored in the account's cache folder. Changes are appended to a journal, so a change costs the same
+ * whatever the number of entries. When the journal becomes longer than the manifest, the manifest is written again
+ * (in a temporary file, then renamed, so a crash never leaves a partially written manifest) and the journal is deleted.
+ * <br>An entry whose cache is about to be written is marked dirty before the file is handed to the application. The record
+ * of a dirty entry can't be trusted: if the application exits, or crashes, before the written file is recorded, the entry's folder
+ * is scanned the next time the entry is requested.
+ * @see Service#setAccountManifestEnabled(boolean)
+ */
+final class AccountManifest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AccountManifest.class);
+	static final String FILE_NAME = ".manifest"; //$NON-NLS-1$
+	static final String JOURNAL_NAME = ".manifest.journal"; //$NON-NLS-1$
+	static final int VERSION = 3;
+	/** The minimum number of journal records before the manifest is compacted. */
+	private static final int MIN_JOURNAL_LENGTH = 64;
+
+	private static final byte PUT = 0;
+	private static final byte REMOVE = 1;
+	private static final byte DIRTY = 2;
+
+	/** The state of a cached entry. */
+	static final class Record {
+		private final String fileName;
+		private final long length;
+		private final long lastModified;
+		private final boolean dirty;
+
+		private Record(String fileName, long length, long lastModified, boolean dirty) {
+			this.fileName = fileName;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.dirty = dirty;
+		}
+
+		/** Gets the name of the file that holds the entry's data.
+		 * @return a file name, relative to the entry's cache folder.
+		 */
+		String getFileName() {
+			return fileName;
+		}
+
+		/** Gets the size of the entry's data.
+		 * @return a number of bytes
+		 */
+		long getLength() {
+			return length;
+		}
+
+		/** Gets the modification date of the entry's data.
+		 * @return a number of ms since the epoch
+		 */
+		long getLastModified() {
+			return lastModified;
+		}
+
+		/** Tests whether the entry's cache may have been written since this record was made.
+		 * @return true if the record can't be trusted and the entry's folder should be scanned.
+		 */
+		boolean isDirty() {
+			return dirty;
+		}
+	}
+
+	private final File file;
+	private final File journal;
+	private final Map<String, Record> records;
+	private int journalLength;
+	/** false until this manifest is written (changes made to a manifest that was never written are not journaled). */
+	private boolean saved;
+
+	/** Constructor.
+	 * <br>Builds an empty manifest. It is written by {@link #save()}.
+	 * @param folder The account's cache folder
+	 */
+	AccountManifest(File folder) {
+		this.file = new File(folder, FILE_NAME);
+		this.journal = new File(folder, JOURNAL_NAME);
+		this.records = new HashMap<String, Record>();
+	}
+
+	/** Reads the manifest of an account.
+	 * <br>The changes recorded in the journal are applied.
+	 * @param folder The account's cache folder
+	 * @return A manifest or null if the manifest does not exist or is not valid (for instance, if it was written by a previous version).
+	 */
+	static AccountManifest read(File folder) {
+		AccountManifest result = new AccountManifest(folder);
+		if (!result.file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(result.file)));
+			try {
+				if (in.readInt()!=VERSION) {
+					// The manifest will be rebuilt in the current format
+					return null;
+				}
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					String name = in.readUTF();
+					result.records.put(name, new Record(in.readUTF(), in.readLong(), in.readLong(), in.readBoolean()));
+				}
+			} finally {
+				in.close();
+			}
+			result.saved = true;
+			if (!result.replay()) {
+				// The journal ends with a truncated record, changes can't be appended after it
+				result.save();
+			}
+			return result;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read manifest "+result.file+", it is ignored", e);
+			return null;
+		}
+	}
+
+	/** Applies the changes recorded in the journal.
+	 * <br>A record that was partially written (because of a crash) ends the journal.
+	 * @return false if the journal ends with a partially written record
+	 * @throws IOException if the journal can't be read
+	 */
+	private boolean replay() throws IOException {
+		if (!journal.isFile()) {
+			return true;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+		try {
+			while (true) {
+				int operation = in.read();
+				if (operation<0) {
+					return true;
+				}
+				String name = in.readUTF();
+				if (operation==PUT) {
+					records.put(name, new Record(in.readUTF(), in.readLong(), in.readLong(), false));
+				} else if (operation==REMOVE) {
+					records.remove(name);
+				} else if (operation==DIRTY) {
+					records.put(name, toDirty(records.get(name)));
+				} else {
+					throw new IOException("Invalid journal record "+operation);
+				}
+				journalLength++;
+			}
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+
+	/** Deletes the manifest of an account.
+	 * @param folder The account's cache folder
+	 * @return true if a manifest was deleted.
+	 */
+	static boolean delete(File folder) {
+		new File(folder, JOURNAL_NAME).delete();
+		return new File(folder, FILE_NAME).delete();
+	}
+
+	/** Gets the names of the cached entries.
+	 * @return a collection of entries display names
+	 */
+	synchronized Collection<String> getNames() {
+		return new ArrayList<String>(records.keySet());
+	}
+
+	/** Gets the state of a cached entry.
+	 * @param name The entry's display name
+	 * @return The entry's state or null if the entry is not cached.
+	 */
+	synchronized Record get(String name) {
+		return records.get(name);
+	}
+
+	/** Updates the state of an entry.
+	 * <br>The change is saved in the journal.
+	 * @param name The entry's display name
+	 * @param data The file that holds the entry's data. If it does not exist, the entry is removed.
+	 */
+	synchronized void put(String name, File data) {
+		if (!data.exists()) {
+			remove(name);
+			return;
+		}
+		Record record = new Record(data.getName(), data.length(), data.lastModified(), false);
+		Record old = records.put(name, record);
+		if ((old==null) || old.dirty || !old.fileName.equals(record.fileName) || (old.length!=record.length) || (old.lastModified!=record.lastModified)) {
+			append(PUT, name, record);
+		}
+	}
+
+	/** Marks an entry dirty, because its cache is about to be written.
+	 * <br>The change is saved in the journal before this method returns.
+	 * @param name The entry's display name
+	 */
+	synchronized void setDirty(String name) {
+		Record old = records.get(name);
+		if ((old==null) || !old.dirty) {
+			records.put(name, toDirty(old));
+			append(DIRTY, name, null);
+		}
+	}
+
+	private static Record toDirty(Record record) {
+		return record==null ? new Record("", 0, 0, true) : new Record(record.fileName, record.length, record.lastModified, true); //$NON-NLS-1$
+	}
+
+	/** Removes an entry.
+	 * <br>The change is saved in the journal.
+	 * @param name The entry's display name
+	 */
+	synchronized void remove(String name) {
+		if (records.remove(name)!=null) {
+			append(REMOVE, name, null);
+		}
+	}
+
+	/** Appends a change to the journal, or saves the whole manifest if the journal is too long.
+	 * <br>Errors are logged, and the manifest is deleted (it will be rebuilt from the cache folders).
+	 */
+	private void append(byte operation, String name, Record record) {
+		if (!saved) {
+			return;
+		}
+		if (journalLength>=Math.max(MIN_JOURNAL_LENGTH, records.size())) {
+			save();
+			return;
+		}
+		try {
+			// The record is written at once, so a crash can only truncate the last record
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(operation);
+			out.writeUTF(name);
+			if (operation==PUT) {
+				out.writeUTF(record.fileName);
+				out.writeLong(record.length);
+				out.writeLong(record.lastModified);
+			}
+			FileOutputStream stream = new FileOutputStream(journal, true);
+			try {
+				bytes.writeTo(stream);
+				stream.getFD().sync();
+			} finally {
+				stream.close();
+			}
+			journalLength++;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to update manifest journal "+journal, e);
+			delete(file.getParentFile());
+		}
+	}
+
+	/** Saves this manifest.
+	 * <br>The journal is then deleted.
+	 * <br>Errors are logged, and the manifest file is deleted (it will be rebuilt from the cache folders).
+	 */
+	synchronized void save() {
+		File tmp = new File(file.getParent(), file.getName()+".tmp"); //$NON-NLS-1$
+		try {
+			FileOutputStream stream = new FileOutputStream(tmp);
+			try {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+				out.writeInt(VERSION);
+				out.writeInt(records.size());
+				for (Map.Entry<String, Record> record : records.entrySet()) {
+					out.writeUTF(record.getKey());
+					out.writeUTF(record.getValue().fileName);
+					out.writeLong(record.getValue().length);
+					out.writeLong(record.getValue().lastModified);
+					out.writeBoolean(record.getValue().dirty);
+				}
+				out.flush();
+				stream.getFD().sync();
+			} finally {
+				stream.close();
+			}
+			if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+				throw new IOException("Unable to rename "+tmp+" to "+file);
+			}
+			// If a crash occurs before the journal is deleted, replaying it leads to the same state
+			journal.delete();
+			journalLength = 0;
+			saved = true;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to save manifest "+file, e);
+			tmp.delete();
+			delete(file.getParentFile());
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.fathzer.soft.jclop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** A service operation executed asynchronously.
+ * <br>The operation receives a Cancellable that reports its progress to an optional caller's Cancellable.
+ * Cancelling the future (or the caller's Cancellable) runs the cancel action set by the operation.
+ * <br>The cancel actions set by the operation are passed to the caller's Cancellable, chained with the cancellation of this future,
+ * so the caller's Cancellable receives the same cancel actions as if the operation was executed synchronously.
+ * <br>Listeners can be notified of the completion of the operation (see {@link #addListener(Runnable, Executor)}).
+ * @param <V> The type of the operation's result
+ * @see Service#synchronizeAsync(java.net.URI, java.util.concurrent.Executor, Cancellable, java.util.Locale)
+ */
+public final class AsyncOperation<V> extends FutureTask<V> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncOperation.class);
+
+	/** The code of an operation. */
+	abstract static class Operation<V> implements Callable<V> {
+		private Cancellable task;
+
+		@Override
+		public final V call() throws Exception {
+			return call(task);
+		}
+
+		/** Executes the operation.
+		 * @param task The Cancellable that should be passed to the service methods.
+		 * @return the operation result
+		 * @throws Exception if the operation fails
+		 */
+		protected abstract V call(Cancellable task) throws Exception;
+	}
+
+	private final Cancellable delegate;
+	private Runnable cancelAction;
+	/** The listeners waiting for the completion, null once the operation is completed. */
+	private List<Runnable> listeners;
+
+	/** Constructor.
+	 * @param operation The operation to execute
+	 * @param task The caller's Cancellable, or null.
+	 */
+	AsyncOperation(Operation<V> operation, Cancellable task) {
+		super(operation);
+		this.delegate = task;
+		this.listeners = new ArrayList<Runnable>();
+		operation.task = new Cancellable() {
+			@Override
+			public void setPhase(String phase, int max) {
+				if (delegate!=null) {
+					delegate.setPhase(phase, max);
+				}
+			}
+
+			@Override
+			public void setMax(int length) {
+				if (delegate!=null) {
+					delegate.setMax(length);
+				}
+			}
+
+			@Override
+			public void reportProgress(int progress) {
+				if (delegate!=null) {
+					delegate.reportProgress(progress);
+				}
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return AsyncOperation.this.isCancelled() || ((delegate!=null) && delegate.isCancelled());
+			}
+
+			@Override
+			public void setCancelAction(Runnable cancelTask) {
+				synchronized (AsyncOperation.this) {
+					cancelAction = cancelTask;
+				}
+				if (delegate!=null) {
+					delegate.setCancelAction(new Runnable() {
+						@Override
+						public void run() {
+							// Cancelling this future runs cancelTask
+							cancel(false);
+						}
+					});
+				}
+			}
+		};
+	}
+
+	/** Adds a listener notified when the operation completes.
+	 * <br>The listener is called once the operation succeeded, failed or was cancelled. If the operation is already completed,
+	 * the listener is immediately submitted to the executor.
+	 * @param listener The listener
+	 * @param executor The executor that will call the listener (for example, an executor that runs tasks on the Swing event dispatch thread).
+	 */
+	public void addListener(Runnable listener, Executor executor) {
+		Runnable call = new ListenerCall(listener, executor);
+		synchronized (this) {
+			if (listeners!=null) {
+				listeners.add(call);
+				return;
+			}
+		}
+		call.run();
+	}
+
+	@Override
+	protected void done() {
+		List<Runnable> toCall;
+		synchronized (this) {
+			toCall = listeners;
+			listeners = null;
+		}
+		for (Runnable call : toCall) {
+			call.run();
+		}
+	}
+
+	/** A call of a listener by its executor. */
+	private static final class ListenerCall implements Runnable {
+		private final Runnable listener;
+		private final Executor executor;
+
+		private ListenerCall(Runnable listener, Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+
+		@Override
+		public void run() {
+			try {
+				executor.execute(listener);
+			} catch (RuntimeException e) {
+				// A listener failure (or an executor rejection) should not prevent other listeners from being called
+				LOGGER.warn("Unable to notify "+listener, e);
+			}
+		}
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean result = super.cancel(mayInterruptIfRunning);
+		if (result) {
+			Runnable action;
+			synchronized (this) {
+				action = cancelAction;
+			}
+			if (action!=null) {
+				action.run();
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,206 @@
+package com.fathzer.soft.jclop;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fathzer.soft.jclop.swing.MessagePack;
+
+/** The synchronization of a set of URIs, performed concurrently by an executor.
+ * <br>The progress of the whole batch (the number of synchronized URIs) is reported to a single Cancellable.
+ * Cancelling this Cancellable cancels all the synchronizations in progress and prevents the others from starting.
+ * @see Service#synchronizeAll(Collection, Executor, Cancellable, Locale, SynchronizationListener)
+ */
+final class BatchSynchronizer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchSynchronizer.class);
+	/** The delay between two checks of the cancellation state of the batch task. */
+	private static final long POLL_DELAY = 100;
+
+	private final Service service;
+	private final Locale locale;
+	private final SynchronizationListener listener;
+	private final Set<Subtask> running;
+	private volatile boolean cancelled;
+
+	/** The Cancellable passed to each URI synchronization.
+	 * <br>Its progress is ignored and it is cancelled when the batch is cancelled.
+	 */
+	private final class Subtask implements Cancellable {
+		private Runnable cancelAction;
+
+		@Override
+		public void setPhase(String phase, int max) {
+			// The progress is reported per URI by the batch
+		}
+
+		@Override
+		public void setMax(int length) {
+			// The progress is reported per URI by the batch
+		}
+
+		@Override
+		public void reportProgress(int progress) {
+			// The progress is reported per URI by the batch
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public synchronized void setCancelAction(Runnable cancelTask) {
+			this.cancelAction = cancelTask;
+		}
+
+		private synchronized void cancel() {
+			if (cancelAction!=null) {
+				cancelAction.run();
+			}
+		}
+	}
+
+	BatchSynchronizer(Service service, Locale locale, SynchronizationListener listener) {
+		this.service = service;
+		this.locale = locale;
+		this.listener = listener;
+		this.running = new HashSet<Subtask>();
+	}
+
+	/** Synchronizes URIs.
+	 * @param uris The URIs to synchronize (duplicates are synchronized once).
+	 * @param executor The executor that performs the synchronizations.
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @return The synchronization states of the successfully synchronized URIs.
+	 * @throws InterruptedException if the current thread was interrupted while waiting for the synchronizations.
+	 * In such a case, the synchronizations in progress are cancelled.
+	 */
+	Map<URI, SynchronizationState> synchronize(Collection<URI> uris, Executor executor, Cancellable task) throws InterruptedException {
+		Set<URI> toDo = new LinkedHashSet<URI>(uris);
+		if (task!=null) {
+			task.setPhase(service.getMessage(MessagePack.SYNCHRONIZING, locale), toDo.size());
+			task.setCancelAction(new Runnable() {
+				@Override
+				public void run() {
+					cancel();
+				}
+			});
+		}
+		if (service.isBulkRevisionsSupported()) {
+			// Get all the remote revisions at once, the synchronizations will use them
+			try {
+				service.getRemoteRevisions(toDo);
+			} catch (JClopException e) {
+				// Each synchronization will ask for its revision
+				LOGGER.debug("Unable to get the remote revisions", e);
+			}
+		}
+		CompletionService<SynchronizationState> completionService = new ExecutorCompletionService<SynchronizationState>(executor);
+		Map<Future<SynchronizationState>, URI> futures = new HashMap<Future<SynchronizationState>, URI>();
+		for (final URI uri : toDo) {
+			futures.put(completionService.submit(new Callable<SynchronizationState>() {
+				@Override
+				public SynchronizationState call() throws Exception {
+					return doSynchronize(uri);
+				}
+			}), uri);
+		}
+		Map<URI, SynchronizationState> result = new HashMap<URI, SynchronizationState>();
+		int done = 0;
+		try {
+			while (done<futures.size()) {
+				Future<SynchronizationState> future = completionService.poll(POLL_DELAY, TimeUnit.MILLISECONDS);
+				if (!cancelled && (task!=null) && task.isCancelled()) {
+					// Some Cancellable never call the cancel action
+					cancel();
+				}
+				if (future!=null) {
+					done++;
+					report(futures.get(future), future, result);
+					if (task!=null) {
+						task.reportProgress(done);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			cancel();
+			throw e;
+		}
+		return result;
+	}
+
+	private SynchronizationState doSynchronize(URI uri) throws Exception {
+		if (cancelled) {
+			return null;
+		}
+		Subtask subtask = new Subtask();
+		synchronized (running) {
+			running.add(subtask);
+		}
+		try {
+			SynchronizationState state = service.synchronize(uri, subtask, locale);
+			// If the batch was cancelled during the synchronization, the state is not reliable
+			return cancelled ? null : state;
+		} catch (Exception e) {
+			if (cancelled) {
+				return null;
+			}
+			throw e;
+		} finally {
+			synchronized (running) {
+				running.remove(subtask);
+			}
+		}
+	}
+
+	private void report(URI uri, Future<SynchronizationState> future, Map<URI, SynchronizationState> result) throws InterruptedException {
+		try {
+			SynchronizationState state = future.get();
+			if (state!=null) {
+				result.put(uri, state);
+				if (listener!=null) {
+					listener.synchronizationDone(uri, state);
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			if (listener!=null) {
+				listener.synchronizationFailed(uri, (Exception) cause);
+			}
+		}
+	}
+
+	/** Cancels the batch.
+	 * <br>The synchronizations that are not started yet will not start, the ones in progress are cancelled.
+	 */
+	void cancel() {
+		cancelled = true;
+		List<Subtask> toCancel;
+		synchronized (running) {
+			toCancel = new ArrayList<Subtask>(running);
+		}
+		for (Subtask subtask : toCancel) {
+			subtask.cancel();
+		}
+	}
+}
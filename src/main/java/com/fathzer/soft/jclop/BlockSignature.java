@@ -0,0 +1,209 @@
+package com.fathzer.soft.jclop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/** The block signature of a file.
+ * <br>The file is divided in fixed size blocks. The signature contains a weak (rolling) checksum and a strong hash of each block.
+ * It allows to find which blocks of the file are unchanged in another version of the file, without having the original file.
+ * <br>This is the rsync algorithm.
+ * @see Delta
+ */
+final class BlockSignature {
+	private static final int VERSION = 1;
+	private static final String HASH_ALGORITHM = "MD5"; //$NON-NLS-1$
+	private static final int HASH_LENGTH = 16;
+	
+	private final String revision;
+	private final int blockSize;
+	private final long length;
+	private final int[] checksums;
+	private final byte[][] hashes;
+	/** The blocks sorted by checksum (the checksum is in the high int, the block index in the low one). */
+	private final long[] sortedBlocks;
+
+	private BlockSignature(String revision, int blockSize, long length, int[] checksums, byte[][] hashes) {
+		this.revision = revision;
+		this.blockSize = blockSize;
+		this.length = length;
+		this.checksums = checksums;
+		this.hashes = hashes;
+		this.sortedBlocks = new long[checksums.length];
+		for (int i = 0; i < checksums.length; i++) {
+			sortedBlocks[i] = (((long)checksums[i])<<32) | i;
+		}
+		Arrays.sort(sortedBlocks);
+	}
+	
+	/** Computes the signature of a file.
+	 * @param file The file
+	 * @param revision The revision of the file
+	 * @param blockSize The size of the blocks
+	 * @return A signature
+	 * @throws IOException If the file can't be read
+	 */
+	static BlockSignature compute(File file, String revision, int blockSize) throws IOException {
+		long length = file.length();
+		int count = (int) ((length+blockSize-1)/blockSize);
+		int[] checksums = new int[count];
+		byte[][] hashes = new byte[count][];
+		MessageDigest digest = getDigest();
+		byte[] block = new byte[blockSize];
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			for (int i = 0; i < count; i++) {
+				int blockLength = (int) Math.min(blockSize, length-((long)i)*blockSize);
+				readFully(in, block, blockLength);
+				checksums[i] = RollingChecksum.compute(block, 0, blockLength);
+				digest.update(block, 0, blockLength);
+				hashes[i] = digest.digest();
+			}
+		} finally {
+			in.close();
+		}
+		return new BlockSignature(revision, blockSize, length, checksums, hashes);
+	}
+
+	/** Reads a signature from a file.
+	 * @param file The file
+	 * @return A signature or null if the file does not exist or is not a valid signature.
+	 */
+	static BlockSignature read(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt()!=VERSION) {
+					return null;
+				}
+				String revision = in.readUTF();
+				int blockSize = in.readInt();
+				long length = in.readLong();
+				int count = in.readInt();
+				int[] checksums = new int[count];
+				byte[][] hashes = new byte[count][];
+				for (int i = 0; i < count; i++) {
+					checksums[i] = in.readInt();
+					hashes[i] = new byte[HASH_LENGTH];
+					in.readFully(hashes[i]);
+				}
+				return new BlockSignature(revision, blockSize, length, checksums, hashes);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/** Writes this signature to a file.
+	 * @param file The file
+	 * @throws IOException If the file can't be written
+	 */
+	void write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(VERSION);
+			out.writeUTF(revision);
+			out.writeInt(blockSize);
+			out.writeLong(length);
+			out.writeInt(checksums.length);
+			for (int i = 0; i < checksums.length; i++) {
+				out.writeInt(checksums[i]);
+				out.write(hashes[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Gets the revision of the signed file.
+	 * @return a String
+	 */
+	String getRevision() {
+		return revision;
+	}
+
+	/** Gets the size of the blocks.
+	 * @return an integer
+	 */
+	int getBlockSize() {
+		return blockSize;
+	}
+
+	/** Gets the length of the signed file.
+	 * @return a number of bytes
+	 */
+	long getLength() {
+		return length;
+	}
+
+	/** Finds a block.
+	 * @param checksum The weak checksum of the searched block.
+	 * @param data The data of the searched block, in a circular buffer.
+	 * @param start The index of the first byte of the searched block in data.
+	 * @param blockLength The length of the searched block.
+	 * @param digest A digest to use to compute the strong hash of the searched block.
+	 * @return the index of a block of the signed file that is equal to the searched one, or -1 if there's no such block.
+	 */
+	int find(int checksum, byte[] data, int start, int blockLength, MessageDigest digest) {
+		// Find the first block with the searched checksum
+		int position = Arrays.binarySearch(sortedBlocks, ((long)checksum)<<32);
+		if (position<0) {
+			position = -position-1;
+		}
+		byte[] hash = null;
+		for (; (position<sortedBlocks.length) && ((int)(sortedBlocks[position]>>32)==checksum); position++) {
+			int i = (int) sortedBlocks[position];
+			if (getBlockLength(i)==blockLength) {
+				if (hash==null) {
+					int end = Math.min(data.length, start+blockLength);
+					digest.update(data, start, end-start);
+					digest.update(data, 0, blockLength-(end-start));
+					hash = digest.digest();
+				}
+				if (Arrays.equals(hash, hashes[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private int getBlockLength(int index) {
+		return (int) Math.min(blockSize, length-((long)index)*blockSize);
+	}
+
+	static MessageDigest getDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while (read<length) {
+			int count = in.read(buffer, read, length-read);
+			if (count<0) {
+				throw new EOFException();
+			}
+			read += count;
+		}
+		return read;
+	}
+}
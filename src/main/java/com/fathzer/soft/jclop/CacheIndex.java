@@ -0,0 +1,350 @@
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** An in-memory index of the local cache state of a service.
+ * <br>For every entry, it remembers the file that currently holds the cached data (its name encodes the revision and the
+ * synchronization state). This prevents the service from listing the entry's cache folder each time it needs it.
+ * <br>The index is built lazily (an entry's folder is scanned the first time the entry is requested) and is updated by
+ * the service each time it changes the cache.
+ * <br>By default, the index assumes that nobody else modifies the cache folder. If it is not the case, the index can be
+ * monitored (see {@link #setMonitored(boolean)}) or cleared.
+ * <br>Optionally, the index maintains a manifest of each account (see {@link AccountManifest}). The manifest is used to list
+ * the cached entries of an account and to know the state of an entry without scanning its folder. An entry is marked dirty
+ * in the manifest before its file is handed out for writing, so a file written by an application that exited before the
+ * service recorded it is found by a scan of the entry's folder.
+ * @see Service#getLocalFile(java.net.URI)
+ */
+final class CacheIndex {
+	/** The cache state of an entry. */
+	private static final class State {
+		private final Account account;
+		private final String name;
+		private final File folder;
+		private File file;
+		private File pending;
+		private long stamp;
+
+		private State(Account account, String name, File folder) {
+			this.account = account;
+			this.name = name;
+			this.folder = folder;
+		}
+	}
+
+	private final Service service;
+	private final ConcurrentMap<Account, ConcurrentMap<String, State>> states;
+	private final ConcurrentMap<Account, AccountManifest> manifests;
+	/** The accounts whose stale manifest was deleted since manifests were disabled. */
+	private final Set<Account> cleaned;
+	private volatile boolean monitored;
+	private volatile boolean manifestEnabled;
+
+	CacheIndex(Service service) {
+		this.service = service;
+		this.states = new ConcurrentHashMap<Account, ConcurrentMap<String, State>>();
+		this.manifests = new ConcurrentHashMap<Account, AccountManifest>();
+		this.cleaned = Collections.newSetFromMap(new ConcurrentHashMap<Account, Boolean>());
+	}
+
+	/** Sets whether external modifications of the cache are detected.
+	 * <br>When monitored, each lookup compares the modification date of the entry's cache folder with the one recorded
+	 * during the last scan (one file system call) and scans the folder again if it was changed by someone else.
+	 * <br>Please note that some file systems have a coarse date resolution (FAT has a 2 seconds one). On such file systems,
+	 * a modification made by another process just after one made by this service may be missed.
+	 * @param monitored true to detect external modifications.
+	 */
+	void setMonitored(boolean monitored) {
+		this.monitored = monitored;
+	}
+
+	/** Sets whether the accounts manifests are maintained.
+	 * <br>When disabled, the existing manifests are deleted the first time the cache of their account changes, as they are
+	 * no longer up to date.
+	 * @param enabled true to maintain the manifests
+	 */
+	void setManifestEnabled(boolean enabled) {
+		this.manifestEnabled = enabled;
+		cleaned.clear();
+		if (!enabled) {
+			manifests.clear();
+		}
+	}
+
+	/** Tests whether the accounts manifests are maintained.
+	 * @return true if manifests are enabled
+	 */
+	boolean isManifestEnabled() {
+		return manifestEnabled;
+	}
+
+	/** Gets the cached entries of an account from its manifest.
+	 * <br>If the account has no manifest yet, it is built from the account's cache folders.
+	 * <br>The entries' metadata (see {@link Entry#getInfo()}) also comes from the manifest, no file is read.
+	 * @param account The account
+	 * @return The cached entries
+	 */
+	Collection<Entry> getEntries(Account account) {
+		ConcurrentMap<String, State> accountStates = states.get(account);
+		if (accountStates!=null) {
+			// Make sure the files written since the last change are recorded in the manifest
+			for (State state : accountStates.values()) {
+				if (state.pending!=null) {
+					getFile(state);
+				}
+			}
+		}
+		Collection<Entry> result = new ArrayList<Entry>();
+		AccountManifest manifest = getManifest(account, true);
+		for (String name : manifest.getNames()) {
+			AccountManifest.Record record = manifest.get(name);
+			// The entry may have been removed since the names were read
+			if (record==null) {
+				continue;
+			}
+			if (record.isDirty()) {
+				// The entry may have been written since the record was made
+				File file = getFile(getState(account, name, true));
+				if (file.exists()) {
+					result.add(new Entry(account, name, Service.getCacheInfo(file.getName(), file.length(), file.lastModified())));
+				}
+			} else {
+				result.add(new Entry(account, name, Service.getCacheInfo(record.getFileName(), record.getLength(), record.getLastModified())));
+			}
+		}
+		return result;
+	}
+
+	/** Gets the file that currently contains an entry's cached data.
+	 * @param entry The entry
+	 * @return a File, that may not exist if the entry is not cached.
+	 */
+	File getFile(Entry entry) {
+		return getFile(getState(entry.getAccount(), entry.getDisplayName(), true));
+	}
+
+	private File getFile(State state) {
+		boolean changed = false;
+		File result;
+		synchronized (state) {
+			if ((state.file==null) || (monitored && state.folder.lastModified()!=state.stamp)) {
+				long start = service.startOperation();
+				scan(state);
+				service.endOperation(ServiceMetrics.Operation.CACHE_SCAN, start, true);
+				changed = true;
+			} else if ((state.pending!=null) && state.pending.exists()) {
+				// Data was written in the pending file, it is now the current one
+				if (!state.file.equals(state.pending)) {
+					state.file.delete();
+				}
+				state.file = state.pending;
+				state.pending = null;
+				updateStamp(state);
+				changed = true;
+			}
+			result = state.file;
+		}
+		if (changed) {
+			// The manifest is updated outside of the state's lock (building a manifest locks the states)
+			updateManifest(state.account, state.name, result);
+		}
+		return result;
+	}
+
+	/** Records the file that now contains an entry's cached data.
+	 * @param entry The entry
+	 * @param file The file
+	 */
+	void setFile(Entry entry, File file) {
+		State state = getState(entry.getAccount(), entry.getDisplayName(), true);
+		synchronized (state) {
+			state.file = file;
+			state.pending = null;
+			updateStamp(state);
+		}
+		updateManifest(entry.getAccount(), entry.getDisplayName(), file);
+	}
+
+	/** Records the file where an entry is about to be written.
+	 * <br>This file will become the current one as soon as it exists.
+	 * <br>The entry is marked dirty in the account's manifest before this method returns, so, if the application exits
+	 * before the file is recorded, the entry's folder will be scanned instead of trusting the manifest.
+	 * @param entry The entry
+	 * @param file The file
+	 */
+	void setPending(Entry entry, File file) {
+		State state = getState(entry.getAccount(), entry.getDisplayName(), true);
+		synchronized (state) {
+			// Even if the file is the current one, the manifest has to be updated once written
+			state.pending = file;
+		}
+		AccountManifest manifest = getUpdatableManifest(entry.getAccount());
+		if (manifest!=null) {
+			manifest.setDirty(entry.getDisplayName());
+		}
+	}
+
+	/** Forgets the state of an entry.
+	 * <br>This method is called when the entry's cache is deleted, so the entry is also removed from the account's manifest.
+	 * @param entry The entry
+	 */
+	void remove(Entry entry) {
+		ConcurrentMap<String, State> accountStates = states.get(entry.getAccount());
+		if (accountStates!=null) {
+			accountStates.remove(entry.getDisplayName());
+		}
+		updateManifest(entry.getAccount(), entry.getDisplayName(), null);
+	}
+
+	/** Forgets the state of all the entries of an account.
+	 * @param account The account
+	 */
+	void remove(Account account) {
+		states.remove(account);
+		manifests.remove(account);
+		cleaned.remove(account);
+	}
+
+	/** Forgets everything. */
+	void clear() {
+		states.clear();
+		manifests.clear();
+		cleaned.clear();
+	}
+
+	private State getState(Account account, String name, boolean seed) {
+		ConcurrentMap<String, State> accountStates = states.get(account);
+		if (accountStates==null) {
+			accountStates = new ConcurrentHashMap<String, State>();
+			ConcurrentMap<String, State> other = states.putIfAbsent(account, accountStates);
+			if (other!=null) {
+				accountStates = other;
+			}
+		}
+		State state = accountStates.get(name);
+		if (state==null) {
+			state = new State(account, name, service.getCacheFolder(new Entry(account, name)));
+			AccountManifest manifest = seed && manifestEnabled ? getManifest(account, false) : null;
+			AccountManifest.Record record = manifest==null ? null : manifest.get(name);
+			if ((record!=null) && !record.isDirty()) {
+				// The manifest knows the entry's file, there's no need to scan its folder
+				state.file = new File(state.folder, record.getFileName());
+				updateStamp(state);
+			}
+			State other = accountStates.putIfAbsent(name, state);
+			if (other!=null) {
+				state = other;
+			}
+		}
+		return state;
+	}
+
+	/** Gets the manifest of an account.
+	 * @param account The account
+	 * @param build true to build the manifest from the account's cache folders if it does not exist.
+	 * @return a manifest, or null if build is false and the account has no manifest.
+	 */
+	private synchronized AccountManifest getManifest(Account account, boolean build) {
+		AccountManifest manifest = manifests.get(account);
+		if (manifest==null) {
+			manifest = AccountManifest.read(account.getRoot());
+			if ((manifest==null) && build) {
+				manifest = buildManifest(account);
+			}
+			if (manifest!=null) {
+				manifests.put(account, manifest);
+			}
+		}
+		return manifest;
+	}
+
+	private AccountManifest buildManifest(Account account) {
+		AccountManifest manifest = new AccountManifest(account.getRoot());
+		File[] folders = account.getRoot().listFiles();
+		if (folders!=null) {
+			for (File folder : folders) {
+				if (folder.isDirectory()) {
+					Entry entry = service.getLocalEntry(account, folder);
+					if (entry!=null) {
+						manifest.put(entry.getDisplayName(), getFile(getState(account, entry.getDisplayName(), false)));
+					}
+				}
+			}
+		}
+		manifest.save();
+		return manifest;
+	}
+
+	private void updateManifest(Account account, String name, File file) {
+		AccountManifest manifest = getUpdatableManifest(account);
+		if (manifest!=null) {
+			if (file==null) {
+				manifest.remove(name);
+			} else {
+				manifest.put(name, file);
+			}
+		}
+	}
+
+	/** Gets the manifest to update when the cache of an account changes.
+	 * @param account The account
+	 * @return a manifest, or null if the account has no manifest (it will be built from the cache folders when needed) or
+	 * if manifests are disabled.
+	 */
+	private AccountManifest getUpdatableManifest(Account account) {
+		if (!manifestEnabled) {
+			if (cleaned.add(account)) {
+				// A manifest written while manifests were enabled is no more up to date
+				AccountManifest.delete(account.getRoot());
+			}
+			return null;
+		}
+		return getManifest(account, false);
+	}
+
+	private void scan(State state) {
+		File cacheDirectory = state.folder;
+		if (cacheDirectory.isFile()) {
+			// hey ... there's a file where it should be a folder !!!
+			// Cache is corrupted, try to repair it
+			cacheDirectory.delete();
+		}
+		if (!cacheDirectory.exists()) {
+			cacheDirectory.mkdirs();
+		}
+		String[] files = cacheDirectory.list();
+		// There's at least one file in the cache, keep the most recent (delete others)
+		File result = null;
+		if (files!=null) {
+			for (String f : files) {
+				if (f.startsWith(Service.AUXILIARY_PREFIX)) {
+					// Auxiliary files (transfer checkpoints, etc) are managed by their owners
+					continue;
+				}
+				File candidate = new File(cacheDirectory, f);
+				if (Service.isValidFile(f) && ((result==null) || (candidate.lastModified()>result.lastModified()))) {
+					if (result!=null) {
+						result.delete();
+					}
+					result = candidate;
+				} else {
+					candidate.delete();
+				}
+			}
+		}
+		// If there's no cache file, use the default cache file
+		state.file = result!=null?result:new File(cacheDirectory, Service.CACHE_PREFIX+Service.ZIP_SUFFIX);
+		state.pending = null;
+		updateStamp(state);
+	}
+
+	private void updateStamp(State state) {
+		state.stamp = monitored ? state.folder.lastModified() : 0;
+	}
+}
@@ -0,0 +1,163 @@
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.Locale;
+
+/** The resumable transfers of a service that supports chunked transfers.
+ * <br>Files are transferred chunk by chunk. After each chunk, a checkpoint is saved in the entry's cache folder.
+ * If the transfer is interrupted (by a crash or a cancellation), the next transfer of the same data restarts
+ * after the last confirmed chunk.
+ * @see Service#isChunkedTransferSupported()
+ */
+final class ChunkedTransfer {
+	/** The name of the file where a chunked download is written. */
+	static final String PARTIAL_DOWNLOAD = Service.AUXILIARY_PREFIX+"download"; //$NON-NLS-1$
+	private static final String DOWNLOAD_CHECKPOINT = Service.AUXILIARY_PREFIX+"download.checkpoint"; //$NON-NLS-1$
+	private static final String UPLOAD_CHECKPOINT = Service.AUXILIARY_PREFIX+"upload.checkpoint"; //$NON-NLS-1$
+
+	private final Service service;
+	private final int chunkSize;
+
+	ChunkedTransfer(Service service, int chunkSize) {
+		this.service = service;
+		this.chunkSize = chunkSize;
+	}
+
+	/** Downloads a revision of an URI to the partial download file of its cache folder.
+	 * <br>If a previous download of the same revision was interrupted, the download restarts after its last confirmed chunk.
+	 * @param uri The URI to download
+	 * @param revision The revision to download
+	 * @param folder The cache folder of the URI
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the download is done, false if it was cancelled. In such a case, the downloaded chunks are kept.
+	 * @throws RevisionChangedException if the remote revision is not the expected one. In such a case, the downloaded chunks are discarded.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while writing to the local cache.
+	 */
+	boolean download(URI uri, String revision, File folder, Cancellable task, Locale locale) throws JClopException, IOException {
+		File partial = new File(folder, PARTIAL_DOWNLOAD);
+		TransferCheckpoint checkpoint = new TransferCheckpoint(new File(folder, DOWNLOAD_CHECKPOINT));
+		long offset = 0;
+		if ((revision!=null) && revision.equals(checkpoint.getRevision()) && (checkpoint.getOffset()>0) && (partial.length()>=checkpoint.getOffset())) {
+			offset = checkpoint.getOffset();
+		}
+		// Remove the bytes written after the last checkpoint
+		RandomAccessFile file = new RandomAccessFile(partial, "rw"); //$NON-NLS-1$
+		try {
+			file.setLength(offset);
+		} finally {
+			file.close();
+		}
+		try {
+			while (true) {
+				if ((task!=null) && task.isCancelled()) {
+					return false;
+				}
+				long count;
+				FileOutputStream out = new FileOutputStream(partial, true);
+				try {
+					count = service.downloadChunk(uri, revision, offset, chunkSize, out, task, locale);
+					out.getFD().sync();
+				} finally {
+					out.close();
+				}
+				if (count<0) {
+					// Download was cancelled
+					return false;
+				}
+				offset += count;
+				if (count<chunkSize) {
+					// End of file is reached
+					checkpoint.delete();
+					return true;
+				}
+				if (revision!=null) {
+					checkpoint.setRevision(revision);
+					checkpoint.setOffset(offset);
+					checkpoint.save();
+				}
+			}
+		} catch (RevisionChangedException e) {
+			checkpoint.delete();
+			partial.delete();
+			throw e;
+		}
+	}
+
+	/** Uploads a local file to an URI.
+	 * <br>If a previous upload of the same file was interrupted and the remote upload session is still alive,
+	 * the upload restarts after its last confirmed chunk.
+	 * @param uri The URI where to upload
+	 * @param file The file to upload
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the upload is done, false if it was cancelled. 
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while reading the local cache.
+	 */
+	boolean upload(URI uri, File file, Cancellable task, Locale locale) throws JClopException, IOException {
+		long length = file.length();
+		String source = file.getName()+":"+file.lastModified(); //$NON-NLS-1$
+		TransferCheckpoint checkpoint = new TransferCheckpoint(new File(file.getParent(), UPLOAD_CHECKPOINT));
+		String session = null;
+		long offset = 0;
+		if (source.equals(checkpoint.getSource()) && (checkpoint.getLength()==length) && (checkpoint.getSession()!=null)) {
+			// The file was not modified since the interrupted upload, try to resume it
+			offset = service.getChunkedUploadOffset(checkpoint.getSession());
+			if ((offset>=0) && (offset<=length)) {
+				session = checkpoint.getSession();
+			}
+		}
+		if (session==null) {
+			offset = 0;
+			session = service.startChunkedUpload(uri, length);
+			checkpoint.setSession(session);
+			checkpoint.setSource(source);
+			checkpoint.setLength(length);
+			checkpoint.setOffset(offset);
+			checkpoint.save();
+		}
+		while (offset<length) {
+			if ((task!=null) && task.isCancelled()) {
+				return false;
+			}
+			long confirmed;
+			FileInputStream in = new FileInputStream(file);
+			try {
+				skip(in, offset);
+				confirmed = service.uploadChunk(session, offset, in, (int) Math.min(chunkSize, length-offset), task, locale);
+			} finally {
+				in.close();
+			}
+			if (confirmed<0) {
+				// Upload was cancelled
+				return false;
+			}
+			if (confirmed<=offset) {
+				throw new IOException("Upload session "+session+" is not progressing");
+			}
+			offset = confirmed;
+			checkpoint.setOffset(offset);
+			checkpoint.save();
+		}
+		service.finishChunkedUpload(session, uri, length);
+		checkpoint.delete();
+		return true;
+	}
+
+	private static void skip(FileInputStream in, long count) throws IOException {
+		while (count>0) {
+			long skipped = in.skip(count);
+			if (skipped<=0) {
+				throw new IOException("Unexpected end of file");
+			}
+			count -= skipped;
+		}
+	}
+}
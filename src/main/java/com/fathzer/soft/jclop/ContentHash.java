@@ -0,0 +1,116 @@
+package com.fathzer.soft.jclop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/** The content hash of a synchronized revision of a cache file.
+ * <br>It allows to detect that a cache file that was written after its synchronization has, in fact, the same content
+ * as the synchronized revision.
+ */
+final class ContentHash {
+	private static final int VERSION = 1;
+
+	private final String revision;
+	private final long length;
+	private final byte[] hash;
+
+	private ContentHash(String revision, long length, byte[] hash) {
+		this.revision = revision;
+		this.length = length;
+		this.hash = hash;
+	}
+
+	/** Computes the content hash of a file.
+	 * @param file The file
+	 * @param revision The revision of the file
+	 * @return A content hash
+	 * @throws IOException If the file can't be read
+	 */
+	static ContentHash compute(File file, String revision) throws IOException {
+		return new ContentHash(revision, file.length(), hash(file));
+	}
+
+	/** Reads a content hash from a file.
+	 * @param file The file
+	 * @return A content hash or null if the file does not exist or is not a valid content hash.
+	 */
+	static ContentHash read(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt()!=VERSION) {
+					return null;
+				}
+				String revision = in.readUTF();
+				long length = in.readLong();
+				byte[] hash = new byte[in.readInt()];
+				in.readFully(hash);
+				return new ContentHash(revision, length, hash);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/** Writes this content hash to a file.
+	 * @param file The file
+	 * @throws IOException If the file can't be written
+	 */
+	void write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(VERSION);
+			out.writeUTF(revision);
+			out.writeLong(length);
+			out.writeInt(hash.length);
+			out.write(hash);
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Gets the revision of the hashed file.
+	 * @return a String
+	 */
+	String getRevision() {
+		return revision;
+	}
+
+	/** Tests whether a file has the hashed content.
+	 * <br>The file length is compared first, so a file with another length is not read.
+	 * @param file The file to test
+	 * @return true if the file content is the same as the hashed one.
+	 * @throws IOException If the file can't be read
+	 */
+	boolean matches(File file) throws IOException {
+		return file.length()==length && Arrays.equals(hash, hash(file));
+	}
+
+	private static byte[] hash(File file) throws IOException {
+		MessageDigest digest = BlockSignature.getDigest();
+		byte[] buffer = new byte[8192];
+		InputStream in = new FileInputStream(file);
+		try {
+			for (int read = in.read(buffer); read>=0; read = in.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return digest.digest();
+	}
+}
@@ -0,0 +1,173 @@
+package com.fathzer.soft.jclop;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** The differences between a file and a previous version of this file.
+ * <br>A delta is a list of instructions that rebuild the new version from the previous one. Each instruction either copies
+ * a range of the previous version or inserts a range of the new version.
+ * <br>The instructions are sorted in the new version order.
+ * @see Service#uploadPatch(java.net.URI, String, Delta, Cancellable, java.util.Locale)
+ */
+public final class Delta {
+	/** An instruction of a delta. */
+	public static final class Instruction {
+		private final boolean copy;
+		private final long offset;
+		private long length;
+
+		private Instruction(boolean copy, long offset, long length) {
+			this.copy = copy;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/** Tests whether this instruction is a copy.
+		 * @return true if this instruction copies a range of the previous version, false if it inserts a range of the new version.
+		 */
+		public boolean isCopy() {
+			return copy;
+		}
+
+		/** Gets the position of the range.
+		 * @return The position of the range in the previous version for a copy, in the new version ({@link Delta#getFile()}) for an insertion.
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/** Gets the length of the range.
+		 * @return a number of bytes
+		 */
+		public long getLength() {
+			return length;
+		}
+	}
+
+	private final File file;
+	private final List<Instruction> instructions;
+	private long dataLength;
+
+	private Delta(File file) {
+		this.file = file;
+		this.instructions = new ArrayList<Instruction>();
+	}
+
+	/** Gets the file that contains the new version.
+	 * @return a File
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/** Gets the length of the new version.
+	 * @return a number of bytes
+	 */
+	public long getLength() {
+		return file.length();
+	}
+
+	/** Gets the number of bytes of the new version that are not in the previous one.
+	 * @return a number of bytes
+	 */
+	public long getDataLength() {
+		return dataLength;
+	}
+
+	/** Gets the instructions that rebuild the new version.
+	 * @return an unmodifiable list
+	 */
+	public List<Instruction> getInstructions() {
+		return Collections.unmodifiableList(instructions);
+	}
+
+	private void add(boolean copy, long offset, long length) {
+		if (!copy) {
+			dataLength += length;
+		}
+		if (!instructions.isEmpty()) {
+			Instruction last = instructions.get(instructions.size()-1);
+			if ((last.copy==copy) && (last.offset+last.length==offset)) {
+				last.length += length;
+				return;
+			}
+		}
+		instructions.add(new Instruction(copy, offset, length));
+	}
+
+	/** Computes the delta between a file and a previous version.
+	 * @param signature The signature of the previous version
+	 * @param file The new version
+	 * @return A delta
+	 * @throws IOException if the file can't be read
+	 */
+	static Delta compute(BlockSignature signature, File file) throws IOException {
+		Delta delta = new Delta(file);
+		int blockSize = signature.getBlockSize();
+		MessageDigest digest = BlockSignature.getDigest();
+		RollingChecksum checksum = new RollingChecksum();
+		// The window is a circular buffer
+		byte[] window = new byte[blockSize];
+		int start = 0;
+		long position = 0;
+		long dataStart = 0;
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			int count = read(in, window);
+			checksum.reset(window, 0, count);
+			while (count>0) {
+				int block = signature.find(checksum.getValue(), window, start, count, digest);
+				if (block>=0) {
+					// The window is a block of the previous version
+					if (position>dataStart) {
+						delta.add(false, dataStart, position-dataStart);
+					}
+					delta.add(true, ((long)block)*blockSize, count);
+					position += count;
+					dataStart = position;
+					start = 0;
+					count = read(in, window);
+					checksum.reset(window, 0, count);
+				} else {
+					// Slide the window by one byte
+					byte out = window[start];
+					int next = in.read();
+					if (next>=0) {
+						window[start] = (byte) next;
+						checksum.roll(out, (byte) next);
+					} else {
+						checksum.remove(out);
+						count--;
+					}
+					start = (start+1) % blockSize;
+					position++;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		if (position>dataStart) {
+			delta.add(false, dataStart, position-dataStart);
+		}
+		return delta;
+	}
+
+	private static int read(InputStream in, byte[] buffer) throws IOException {
+		int read = 0;
+		while (read<buffer.length) {
+			int count = in.read(buffer, read, buffer.length-read);
+			if (count<0) {
+				break;
+			}
+			read += count;
+		}
+		return read;
+	}
+}
@@ -0,0 +1,343 @@
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+
+import com.fathzer.soft.jclop.swing.MessagePack;
+
+/** A service whose "cloud" is a local directory tree (a NAS mount, a second disk, etc).
+ * <br>Each account is a directory, its connection data is the absolute path of this directory (a String).
+ * Entries are stored in this directory as described by {@link #getRemotePath(Entry)}.
+ * <br>The revision of a remote file is made of its modification date and its size. Files are transfered with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} and {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}.
+ * <br>This service is useful to mirror data on a local target, or as a realistic offline backend to test the synchronization.
+ */
+public class DirectoryService extends Service {
+	/** The scheme of this service's URIs. */
+	public static final String SCHEME = "directory"; //$NON-NLS-1$
+	/** The size of the blocks transfered between two progress reports. */
+	private static final long BLOCK_SIZE = 1024*1024;
+	/** The number of entries delivered in each page of a listing. */
+	private static final int PAGE_SIZE = 500;
+	private static final String TMP_PREFIX = "."; //$NON-NLS-1$
+	private static final String TMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	/** Constructor.
+	 * @param root The root folder of the services (the place where all accounts of all services are cached).
+	 * @throws IOException If an error occurs while accessing to the local cache
+	 * @see Service#Service(File, boolean)
+	 */
+	public DirectoryService(File root) throws IOException {
+		super(root, false);
+	}
+
+	@Override
+	public String getScheme() {
+		return SCHEME;
+	}
+
+	@Override
+	public Entry getEntry(URI uri) {
+		return getEntry(this, uri);
+	}
+
+	/** Gets the entry of an URI built by {@link #getURI(Entry)}.
+	 * <br>This is the implementation of {@link #getEntry(URI)}. It is shared with services whose URIs have the same format.
+	 * @param service The service of the entry
+	 * @param uri The entry's URI
+	 * @return An entry
+	 * @throws IllegalArgumentException if the URI is not an URI of the service or has no account id or connection data.
+	 */
+	static Entry getEntry(Service service, URI uri) {
+		if (!service.getScheme().equals(uri.getScheme())) {
+			throw new IllegalArgumentException();
+		}
+		try {
+			String userInfo = uri.getRawUserInfo();
+			int index = userInfo==null ? -1 : userInfo.indexOf(':');
+			if (index<0) {
+				// The URI has no account id or no connection data
+				throw new IllegalArgumentException();
+			}
+			String id = URLDecoder.decode(userInfo.substring(0, index), UTF_8);
+			String[] path = uri.getRawPath().split("/"); //$NON-NLS-1$
+			if (path.length!=3) {
+				throw new IllegalArgumentException();
+			}
+			Account account = service.getAccount(id);
+			if (account==null) {
+				// The account is not cached, create a temporary one
+				account = new Account(service, id, URLDecoder.decode(path[1], UTF_8), service.getConnectionData(userInfo.substring(index+1)));
+			}
+			return new Entry(account, URLDecoder.decode(path[2], UTF_8));
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String getConnectionDataURIFragment(Serializable connectionData) {
+		try {
+			return URLEncoder.encode((String) connectionData, UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Serializable getConnectionData(String uriFragment) {
+		try {
+			return URLDecoder.decode(uriFragment, UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Collection<Entry> getRemoteEntries(Account account, Cancellable task) throws JClopException {
+		final Collection<Entry> result = new ArrayList<Entry>();
+		getRemoteEntries(account, task, new RemoteEntriesListener() {
+			@Override
+			public void entriesFound(Collection<Entry> entries) {
+				result.addAll(entries);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	protected void getRemoteEntries(Account account, Cancellable task, RemoteEntriesListener listener) throws JClopException {
+		File folder = getFolder(account);
+		Collection<Entry> page = new ArrayList<Entry>(PAGE_SIZE);
+		list(account, folder, "", page, listener, task); //$NON-NLS-1$
+		if (!page.isEmpty()) {
+			listener.entriesFound(page);
+		}
+		account.setQuota(folder.getTotalSpace());
+		account.setUsed(folder.getTotalSpace()-folder.getUsableSpace());
+	}
+
+	private void list(Account account, File folder, String path, Collection<Entry> page, RemoteEntriesListener listener, Cancellable task) {
+		File[] files = folder.listFiles();
+		if (files==null) {
+			return;
+		}
+		for (File file : files) {
+			if ((task!=null) && task.isCancelled()) {
+				return;
+			}
+			if (file.getName().startsWith(TMP_PREFIX)) {
+				// Hidden or temporary file
+				continue;
+			}
+			String remotePath = path+'/'+file.getName();
+			if (file.isDirectory()) {
+				list(account, file, remotePath, page, listener, task);
+			} else {
+				Entry entry = getRemoteEntry(account, remotePath);
+				if (entry!=null) {
+					long lastModified = file.lastModified();
+					long length = file.length();
+					page.add(new Entry(account, entry.getDisplayName(), new EntryInfo(length, lastModified, getRevision(lastModified, length))));
+					if (page.size()>=PAGE_SIZE) {
+						listener.entriesFound(page);
+						page.clear();
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public String getRemoteRevision(URI uri) throws JClopException {
+		return getRevision(getRemoteFile(getEntry(uri)));
+	}
+
+	@Override
+	protected boolean isConditionalDownloadSupported() {
+		return true;
+	}
+
+	@Override
+	public boolean download(URI uri, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		return download(uri, null, Channels.newChannel(out), task, locale);
+	}
+
+	@Override
+	protected boolean download(URI uri, String revision, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		return download(uri, revision, Channels.newChannel(out), task, locale);
+	}
+
+	@Override
+	protected boolean download(URI uri, String revision, WritableByteChannel out, Cancellable task, Locale locale) throws JClopException, IOException {
+		File file = getRemoteFile(getEntry(uri));
+		if ((revision!=null) && !revision.equals(getRevision(file))) {
+			throw new RevisionChangedException();
+		}
+		FileChannel in;
+		try {
+			in = new FileInputStream(file).getChannel();
+		} catch (FileNotFoundException e) {
+			throw new HostErrorException(e);
+		}
+		try {
+			long length = in.size();
+			Progress progress = new Progress(task, length);
+			progress.start(MessagePack.DOWNLOADING, locale);
+			for (long position = 0; position<length; ) {
+				if (progress.isCancelled()) {
+					return false;
+				}
+				long count = in.transferTo(position, Math.min(BLOCK_SIZE, length-position), out);
+				if (count==0) {
+					// The file was truncated during the transfer
+					break;
+				}
+				position += count;
+				progress.report(position);
+			}
+		} finally {
+			in.close();
+		}
+		if ((revision!=null) && !revision.equals(getRevision(file))) {
+			// The file was modified during the download
+			throw new RevisionChangedException();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean upload(InputStream in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		return upload(Channels.newChannel(in), length, uri, task, locale);
+	}
+
+	@Override
+	protected boolean upload(ReadableByteChannel in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		File file = getRemoteFile(getEntry(uri));
+		File folder = file.getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			throw new HostErrorException(new IOException("Unable to create "+folder));
+		}
+		if (folder.getUsableSpace()<length) {
+			throw new NoSpaceRemainingException(null);
+		}
+		String previousRevision = getRevision(file);
+		// Write in a temporary file, then rename it, so that nobody can read a partially written file
+		File tmpFile = new File(folder, TMP_PREFIX+file.getName()+TMP_SUFFIX);
+		boolean done = false;
+		try {
+			FileChannel out = new FileOutputStream(tmpFile).getChannel();
+			try {
+				Progress progress = new Progress(task, length);
+				progress.start(MessagePack.UPLOADING, locale);
+				for (long position = 0; position<length; ) {
+					if (progress.isCancelled()) {
+						return false;
+					}
+					long count = out.transferFrom(in, position, Math.min(BLOCK_SIZE, length-position));
+					if (count==0) {
+						throw new IOException("Unexpected end of data");
+					}
+					position += count;
+					progress.report(position);
+				}
+				out.force(true);
+			} finally {
+				out.close();
+			}
+			if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+				throw new HostErrorException(new IOException("Unable to rename "+tmpFile+" to "+file));
+			}
+			done = true;
+		} finally {
+			if (!done) {
+				tmpFile.delete();
+			}
+		}
+		// The modification date resolution may be coarse, make sure the revision changed
+		if (getRevision(file).equals(previousRevision)) {
+			file.setLastModified(file.lastModified()+1000);
+		}
+		return true;
+	}
+
+	/** Gets the directory of an account.
+	 * @param account The account
+	 * @return a directory
+	 * @throws UnreachableHostException if the directory does not exist (for instance, the NAS is not mounted)
+	 */
+	private File getFolder(Account account) throws UnreachableHostException {
+		File folder = new File((String) account.getConnectionData());
+		if (!folder.isDirectory()) {
+			throw new UnreachableHostException(new FileNotFoundException(folder.getPath()));
+		}
+		return folder;
+	}
+
+	private File getRemoteFile(Entry entry) throws UnreachableHostException {
+		return new File(getFolder(entry.getAccount()), getRemotePath(entry));
+	}
+
+	/** Gets the revision of a file.
+	 * @param file The file
+	 * @return the revision or null if the file does not exist
+	 */
+	private static String getRevision(File file) {
+		return getRevision(file.lastModified(), file.length());
+	}
+
+	private static String getRevision(long lastModified, long length) {
+		if (lastModified==0) {
+			return null;
+		}
+		return Long.toString(lastModified, Character.MAX_RADIX)+"-"+Long.toString(length, Character.MAX_RADIX); //$NON-NLS-1$
+	}
+
+	/** The progress of a transfer.
+	 * <br>The progress is reported in bytes, or in kilobytes if the file is too large.
+	 */
+	private final class Progress {
+		private final Cancellable task;
+		private final int shift;
+		private final long length;
+
+		private Progress(Cancellable task, long length) {
+			this.task = task;
+			this.length = length;
+			this.shift = length>Integer.MAX_VALUE ? 10 : 0;
+		}
+
+		private void start(String phaseKey, Locale locale) {
+			if (task!=null) {
+				task.setPhase(getMessage(phaseKey, locale), (int) (length>>shift));
+			}
+		}
+
+		private void report(long position) {
+			if (task!=null) {
+				task.reportProgress((int) (position>>shift));
+			}
+		}
+
+		private boolean isCancelled() {
+			return (task!=null) && task.isCancelled();
+		}
+	}
+}
@@ -1,61 +1,83 @@
-package com.fathzer.soft.jclop;
-
-public final class Entry implements Comparable<Entry> {
-	private String displayName;
-	private Account account;
-	
-	public Entry(Account account, String displayName) {
-		this.displayName = displayName;
-		this.account = account;
-	}
-
-	/**
-	 * @return the displayName
-	 */
-	public String getDisplayName() {
-		return displayName;
-	}
-	
-	/**
-	 * @return the account
-	 */
-	public Account getAccount() {
-		return account;
-	}
-	
-	@Override
-	public int compareTo(Entry o) {
-		int result = this.account.getId().compareTo(o.getAccount().getId());
-		if (result==0) {
-			result = this.displayName.compareTo(o.displayName);
-		}
-		return result;
-	}
-
-	/* (non-Javadoc)
-	 * @see java.lang.Object#hashCode()
-	 */
-	@Override
-	public int hashCode() {
-		return account.hashCode()+displayName.hashCode();
-	}
-
-	/* (non-Javadoc)
-	 * @see java.lang.Object#equals(java.lang.Object)
-	 */
-	@Override
-	public boolean equals(Object obj) {
-		if (!(obj instanceof Entry)) {
-			return super.equals(obj);
-		}
-		return account.equals(((Entry) obj).getAccount()) && displayName.equals(((Entry) obj).getDisplayName());
-	}
-	
-	/* (non-Javadoc)
-	 * @see java.lang.Object#toString()
-	 */
-	@Override
-	public String toString() {
-		return account.getId()+"/"+displayName;
-	}
-}
+package com.fathzer.soft.jclop;
+
+/** An entry of an account.
+ * <br>Two entries are equal if they have the same account and display name. Their metadata is ignored.
+ */
+public final class Entry implements Comparable<Entry> {
+	private String displayName;
+	private Account account;
+	private EntryInfo info;
+	
+	public Entry(Account account, String displayName) {
+		this(account, displayName, null);
+	}
+
+	/** Constructor.
+	 * @param account The entry's account
+	 * @param displayName The entry's display name
+	 * @param info The entry's metadata, or null if it is unknown
+	 */
+	public Entry(Account account, String displayName, EntryInfo info) {
+		this.displayName = displayName;
+		this.account = account;
+		this.info = info;
+	}
+
+	/**
+	 * @return the displayName
+	 */
+	public String getDisplayName() {
+		return displayName;
+	}
+	
+	/**
+	 * @return the account
+	 */
+	public Account getAccount() {
+		return account;
+	}
+
+	/** Gets the entry's metadata.
+	 * <br>The metadata is attached to the entries returned by the listings. Entries built from an URI have no metadata.
+	 * @return the metadata or null if it is unknown
+	 */
+	public EntryInfo getInfo() {
+		return info;
+	}
+	
+	@Override
+	public int compareTo(Entry o) {
+		int result = this.account.getId().compareTo(o.getAccount().getId());
+		if (result==0) {
+			result = this.displayName.compareTo(o.displayName);
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return account.hashCode()+displayName.hashCode();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Entry)) {
+			return super.equals(obj);
+		}
+		return account.equals(((Entry) obj).getAccount()) && displayName.equals(((Entry) obj).getDisplayName());
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return account.getId()+"/"+displayName;
+	}
+}
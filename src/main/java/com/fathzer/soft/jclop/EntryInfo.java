@@ -0,0 +1,91 @@
+package com.fathzer.soft.jclop;
+
+/** The metadata of an entry (its size, its modification date and its revision).
+ * <br>The metadata is obtained with the entry, as a side effect of a listing (see {@link Account#getRemoteEntries(Cancellable)}
+ * and {@link Account#getLocalEntries()}), so it can be displayed or used without any other call.
+ * <br>It is a snapshot taken when the entry was listed, it may be out of date.
+ * @see Entry#getInfo()
+ */
+public final class EntryInfo {
+	/** The value of a size or a date that is unknown. */
+	public static final long UNKNOWN = -1;
+
+	private final long size;
+	private final long lastModified;
+	private final String revision;
+	private final boolean synchronizedCache;
+
+	/** Constructor.
+	 * @param size The entry's size in bytes, or {@link #UNKNOWN}
+	 * @param lastModified The date of the entry's last modification in ms since the epoch, or {@link #UNKNOWN}
+	 * @param revision The entry's remote revision, or null if it is unknown
+	 */
+	public EntryInfo(long size, long lastModified, String revision) {
+		this(size, lastModified, revision, true);
+	}
+
+	/** Constructor of the metadata of a cached entry.
+	 * @param size The cache's size in bytes, or {@link #UNKNOWN}
+	 * @param lastModified The date of the cache's last modification in ms since the epoch, or {@link #UNKNOWN}
+	 * @param revision The remote revision on which the cache is based, or null if it was never synchronized
+	 * @param synchronizedCache false if the cache was modified since its last synchronization
+	 */
+	EntryInfo(long size, long lastModified, String revision, boolean synchronizedCache) {
+		this.size = size;
+		this.lastModified = lastModified;
+		this.revision = revision;
+		this.synchronizedCache = synchronizedCache;
+	}
+
+	/** Gets the entry's size.
+	 * @return a number of bytes or {@link #UNKNOWN}. Please note that, for remote entries, this is the size of the stored file,
+	 * which may be compressed (see {@link Service#getRemotePath(Entry)}).
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/** Gets the entry's modification date.
+	 * @return a number of ms since the epoch or {@link #UNKNOWN}
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/** Gets the entry's revision.
+	 * <br>For remote entries, this is the value {@link Service#getRemoteRevision(java.net.URI)} would have returned.
+	 * For cached entries, this is the value of {@link Service#getLocalRevision(java.net.URI)}.
+	 * @return a revision or null if it is unknown (or, for cached entries, if the cache was never synchronized).
+	 */
+	public String getRevision() {
+		return revision;
+	}
+
+	/** Tests whether the entry's cache was synchronized.
+	 * <br>See {@link Service#isSynchronized(java.net.URI)} for the exact meaning of "synchronized".
+	 * @return false if the entry is cached and the cache was modified since its last synchronization. Always true for remote entries.
+	 */
+	public boolean isSynchronized() {
+		return synchronizedCache;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int)(size ^ (size>>>32)) + 31*(int)(lastModified ^ (lastModified>>>32)) + (revision==null ? 0 : revision.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof EntryInfo)) {
+			return false;
+		}
+		EntryInfo other = (EntryInfo) obj;
+		return (size==other.size) && (lastModified==other.lastModified) && (synchronizedCache==other.synchronizedCache)
+				&& (revision==null ? other.revision==null : revision.equals(other.revision));
+	}
+
+	@Override
+	public String toString() {
+		return "size="+size+", lastModified="+lastModified+", revision="+revision+", synchronized="+synchronizedCache; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+}
@@ -0,0 +1,111 @@
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** The locks that serialize the operations on the cache of an entry.
+ * <br>The entries are spread over a fixed number of reentrant locks (lock striping): operations on the same entry are serialized,
+ * operations on entries that are mapped to different stripes run in parallel.
+ * <br>Optionally, a file lock on an auxiliary file of the entry's cache folder prevents other processes that share the cache root
+ * from working on the same entry.
+ */
+final class EntryLocks {
+	private static final String LOCK_FILE = Service.AUXILIARY_PREFIX+"lock"; //$NON-NLS-1$
+	private static final int STRIPES = 64;
+
+	private final ReentrantLock[] stripes;
+	private volatile boolean crossProcess;
+
+	/** A held lock. */
+	final class Lock {
+		private final ReentrantLock stripe;
+		private final RandomAccessFile lockFile;
+		private final FileLock fileLock;
+
+		private Lock(ReentrantLock stripe, RandomAccessFile lockFile, FileLock fileLock) {
+			this.stripe = stripe;
+			this.lockFile = lockFile;
+			this.fileLock = fileLock;
+		}
+
+		/** Releases the lock. */
+		void release() {
+			try {
+				if (fileLock!=null) {
+					try {
+						fileLock.release();
+					} finally {
+						lockFile.close();
+					}
+				}
+			} catch (IOException e) {
+				// Closing the file releases the lock anyway
+			} finally {
+				stripe.unlock();
+			}
+		}
+	}
+
+	EntryLocks() {
+		this.stripes = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/** Sets whether the entries are also locked against other processes.
+	 * @param crossProcess true to lock the entries with a file lock.
+	 */
+	void setCrossProcess(boolean crossProcess) {
+		this.crossProcess = crossProcess;
+	}
+
+	/** Locks an entry against the other threads of this process.
+	 * <br>The lock is reentrant.
+	 * @param entry The entry to lock
+	 * @return The lock, it should be released in a finally block.
+	 */
+	Lock lockLocally(Entry entry) {
+		ReentrantLock stripe = getStripe(entry);
+		stripe.lock();
+		return new Lock(stripe, null, null);
+	}
+
+	/** Locks an entry.
+	 * <br>The lock is reentrant, the file lock (if any) is only acquired by the outermost call.
+	 * @param entry The entry to lock
+	 * @param folder The entry's cache folder
+	 * @return The lock, it should be released in a finally block.
+	 * @throws IOException if the file lock can't be acquired.
+	 */
+	Lock lock(Entry entry, File folder) throws IOException {
+		ReentrantLock stripe = getStripe(entry);
+		stripe.lock();
+		if (!crossProcess || stripe.getHoldCount()>1) {
+			return new Lock(stripe, null, null);
+		}
+		try {
+			folder.mkdirs();
+			RandomAccessFile lockFile = new RandomAccessFile(new File(folder, LOCK_FILE), "rw"); //$NON-NLS-1$
+			try {
+				return new Lock(stripe, lockFile, lockFile.getChannel().lock());
+			} catch (IOException e) {
+				lockFile.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			stripe.unlock();
+			throw e;
+		} catch (RuntimeException e) {
+			stripe.unlock();
+			throw e;
+		}
+	}
+
+	private ReentrantLock getStripe(Entry entry) {
+		return stripes[(entry.hashCode() & Integer.MAX_VALUE) % STRIPES];
+	}
+}
@@ -0,0 +1,14 @@
+package com.fathzer.soft.jclop;
+
+import java.util.Collection;
+
+/** A listener that receives the remote entries of an account page by page, while they are listed.
+ * <br>The methods of this listener are called by the thread that lists the entries.
+ * @see Account#getRemoteEntries(Cancellable, RemoteEntriesListener)
+ */
+public interface RemoteEntriesListener {
+	/** This method is called each time a page of remote entries is received.
+	 * @param entries The entries of the page. This collection should not be modified or kept after this method returns.
+	 */
+	public void entriesFound(Collection<Entry> entries);
+}
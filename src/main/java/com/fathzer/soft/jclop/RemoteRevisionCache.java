@@ -0,0 +1,123 @@
+package com.fathzer.soft.jclop;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** A short-lived memory of the remote revisions of a service's entries.
+ * <br>Remote revisions are often obtained as a side effect of another remote call (a listing of the account, a transfer, etc).
+ * This cache remembers them for a while in order to save calls to {@link Service#getRemoteRevision(java.net.URI)}.
+ * <br>A revision older than the cache's time to live is ignored, and removed from the cache the next time it is requested
+ * or the next time its account is listed.
+ */
+final class RemoteRevisionCache {
+	/** A remote revision. */
+	static final class Revision {
+		private final String value;
+		private final long time;
+
+		private Revision(String value, long time) {
+			this.value = value;
+			this.time = time;
+		}
+
+		/** Gets the revision.
+		 * @return a String or null if the entry does not exist remotely
+		 */
+		String getValue() {
+			return value;
+		}
+	}
+
+	private final ConcurrentMap<Entry, Revision> revisions;
+	private final ConcurrentMap<Account, Long> listings;
+	private volatile long timeToLive;
+
+	RemoteRevisionCache(long timeToLive) {
+		this.revisions = new ConcurrentHashMap<Entry, Revision>();
+		this.listings = new ConcurrentHashMap<Account, Long>();
+		this.timeToLive = timeToLive;
+	}
+
+	void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/** Gets the remote revision of an entry.
+	 * @param entry The entry
+	 * @return The revision or null if the revision is unknown or too old.
+	 */
+	Revision get(Entry entry) {
+		if (timeToLive<=0) {
+			return null;
+		}
+		long oldest = System.currentTimeMillis()-timeToLive;
+		Revision revision = revisions.get(entry);
+		if (revision!=null) {
+			if (revision.time>=oldest) {
+				return revision;
+			}
+			revisions.remove(entry, revision);
+		}
+		// If the entry was not part of a recent complete listing of its account, it does not exist
+		Long listingTime = listings.get(entry.getAccount());
+		if (listingTime!=null) {
+			if (listingTime.longValue()>=oldest) {
+				return new Revision(null, listingTime.longValue());
+			}
+			listings.remove(entry.getAccount(), listingTime);
+		}
+		return null;
+	}
+
+	/** Remembers the remote revision of an entry.
+	 * @param entry The entry
+	 * @param revision Its revision or null if the entry does not exist remotely.
+	 */
+	void put(Entry entry, String revision) {
+		revisions.put(entry, new Revision(revision, System.currentTimeMillis()));
+	}
+
+	/** Remembers the revisions of all the remote entries of an account.
+	 * @param account The account
+	 * @param accountRevisions The revisions of all the entries of the account.
+	 * The entries that are not in this map are considered to not exist remotely.
+	 * <br>The expired revisions of all the accounts are removed from the cache.
+	 */
+	void putAll(Account account, Map<Entry, String> accountRevisions) {
+		long now = System.currentTimeMillis();
+		long oldest = now-timeToLive;
+		for (Map.Entry<Entry, Revision> revision : revisions.entrySet()) {
+			if (revision.getValue().time<oldest) {
+				revisions.remove(revision.getKey(), revision.getValue());
+			}
+		}
+		for (Map.Entry<Entry, String> revision : accountRevisions.entrySet()) {
+			revisions.put(revision.getKey(), new Revision(revision.getValue(), now));
+		}
+		listings.put(account, now);
+	}
+
+	/** Forgets the revision of an entry.
+	 * <br>The entry's revision will remain unknown even if its account was recently listed: as the listing was made before
+	 * the entry changed, it no longer tells whether the entry exists. So, the account's listing is forgotten too (the other
+	 * revisions obtained by the listing are kept).
+	 * @param entry The entry
+	 */
+	void remove(Entry entry) {
+		revisions.remove(entry);
+		listings.remove(entry.getAccount());
+	}
+
+	/** Forgets the revisions of an account.
+	 * @param account The account
+	 */
+	void remove(Account account) {
+		listings.remove(account);
+		for (Entry entry : revisions.keySet()) {
+			if (entry.getAccount().equals(account)) {
+				revisions.remove(entry);
+			}
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.fathzer.soft.jclop;
+
+/** Signals that the remote revision of a file is not the expected one.
+ * <br>The most common cause is the remote file was modified during a transfer.
+ * @author Jean-Marc Astesana
+ */
+public class RevisionChangedException extends JClopException {
+	private static final long serialVersionUID = 1L;
+
+	public RevisionChangedException() {
+		super(null);
+	}
+
+	public RevisionChangedException(Throwable cause) {
+		super(cause);
+	}
+}
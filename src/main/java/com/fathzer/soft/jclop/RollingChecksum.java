@@ -0,0 +1,64 @@
+package com.fathzer.soft.jclop;
+
+/** The weak rolling checksum used by the rsync algorithm.
+ * <br>The checksum of a window can be updated in constant time when the window slides by one byte.
+ * @see BlockSignature
+ */
+final class RollingChecksum {
+	private int a;
+	private int b;
+	private int length;
+
+	/** Computes the checksum of a window.
+	 * @param data The data
+	 * @param offset The index of the first byte of the window
+	 * @param length The length of the window
+	 * @return The checksum of the window
+	 */
+	static int compute(byte[] data, int offset, int length) {
+		RollingChecksum checksum = new RollingChecksum();
+		checksum.reset(data, offset, length);
+		return checksum.getValue();
+	}
+
+	/** Resets this checksum to a window.
+	 * @param data The data
+	 * @param offset The index of the first byte of the window
+	 * @param length The length of the window
+	 */
+	void reset(byte[] data, int offset, int length) {
+		this.a = 0;
+		this.b = 0;
+		this.length = length;
+		for (int i = 0; i < length; i++) {
+			int value = data[offset+i] & 0xff;
+			a += value;
+			b += (length-i)*value;
+		}
+	}
+
+	/** Slides the window by one byte.
+	 * @param out The byte that leaves the window
+	 * @param in The byte that enters the window
+	 */
+	void roll(byte out, byte in) {
+		a += (in & 0xff) - (out & 0xff);
+		b += a - length*(out & 0xff);
+	}
+
+	/** Removes the first byte of the window.
+	 * @param out The byte that leaves the window
+	 */
+	void remove(byte out) {
+		a -= out & 0xff;
+		b -= length*(out & 0xff);
+		length--;
+	}
+
+	/** Gets the checksum of the current window.
+	 * @return an integer
+	 */
+	int getValue() {
+		return (a & 0xffff) | (b << 16);
+	}
+}
@@ -1,593 +1,1775 @@
-package com.fathzer.soft.jclop;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Locale;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.fathzer.soft.ajlib.utilities.FileUtils;
-import com.fathzer.soft.ajlib.utilities.NullUtils;
-import com.fathzer.soft.jclop.swing.MessagePack;
-
-/** A persistence service.
- * <br>There's two kinds of services :<ul>
- * <li>Cloud services, with accounts synchronized with a local cache.</li>
- * <li>Local services, that typically store data onto disk</li>
- * </ul>
- * <br>Limitation: Account can't contain folder.
- * @author Jean-Marc Astesana
- * Licence GPL v3
- */
-public abstract class Service {
-	private static final Logger LOGGER = LoggerFactory.getLogger(Service.class);
-	public static final String UTF_8 = "UTF-8";
-	static final String ZIP_SUFFIX = ".zip"; //$NON-NLS-1$
-	static final String FILE_PREFIX = "f_";
-	private static final String CACHE_PREFIX = "cache"; //$NON-NLS-1$
-	private static final String SYNCHRONIZED_CACHE_PREFIX = "sync"; //$NON-NLS-1$
-
-	public static final String URI_DOMAIN = "cloud.jclop.fathzer.com";
-
-	private File root;
-	private boolean local;
-	private Collection<Account> accounts;
-
-	/** Constructor.
-	 * @param root The root folder of the services (the place where all accounts of all services are cached).<br>
-	 * null if the service doesn't need any cache.
-	 * @param local true if the service is a local one, false if it stores its data in the cloud.
-	 * <br>Each service can use a folder in the root folder, where all the accounts it manages are cached.
-	 * <br>This folder will be named with the service scheme.
-	 * <br>For example, if your root is "/home/user/.MyApp/cache" and getScheme() returns "MyService",
-	 * the cached data will be placed in "/home/user/.MyApp/cache/MyService".
-	 * @throws IOException If an error occurs while accessing to the local cache
-	 * @throws IllegalArgumentException if it is not possible to create the service folder (or service folder exists but is a file, not a folder)
-	 * @see #getScheme()  
-	 */
-	protected Service(File root, boolean local) throws IOException {
-		this.local = local;
-		if (!local) {
-			root = new File(root, getScheme());
-			if (!root.exists()) {
-				if (!root.mkdirs()) {
-					throw new IOException("Unable to create cache directory");
-				}
-			}
-			if (!root.isDirectory()) {
-				throw new IllegalArgumentException();
-			}
-			this.root = root;
-			/** Forces the account list to be rebuild from the file cache content.
-			 * <br>This method doesn't call the cloud service to get the list of remote accounts
-			 */
-			File[] files = root.listFiles();
-			accounts = new ArrayList<Account>();
-			for (File file : files) {
-				if (file.isDirectory()) {
-					try {
-						accounts.add(new Account(this, file));
-					} catch (Exception e) {
-						// Something is wrong in the account folder, ignore it
-						LOGGER.warn(file+" is ignored", e);
-					}
-				}
-			}
-		}
-	}
-	
-	public final boolean isLocal() {
-		return local;
-	}
-	
-	/** Creates a new account.
-	 * @param id The account's id
-	 * @param displayName The account's display name
-	 * @param connectionData The data necessary to connect with the account
-	 * @return The created account
-	 * @throws IllegalArgumentException if an account with the same id already exists
-	 */
-	public synchronized Account newAccount(String id, String displayName, Serializable connectionData) {
-		if (id==null) {
-			throw new NullPointerException();
-		}
-		for (Account acc : accounts) {
-			if (acc.getId().equals(id)) {
-				throw new IllegalArgumentException(); 
-			}
-		}
-		Account account = new Account(this, id, displayName, connectionData);
-		account.serialize();
-		accounts.add(account);
-		return account;
-	}
-	
-	/** Deletes an account.
-	 * @param account The account to delete. If the account doesn't exist, this method does nothing.
-	 */
-	public synchronized void delete(Account account) {
-		for (Account acc : accounts) {
-			if (acc.getId().equals(account.getId())) {
-				FileUtils.deleteDirectory(account.getRoot());
-				accounts.remove(account);
-				break;
-			}
-		}
-	}
-	
-	/** Gets the available accounts.
-	 * @return A collection of available accounts
-	 */
-	public final synchronized Collection<Account> getAccounts() {
-		return accounts;
-	}
-	
-	File getCacheRoot() {
-		return root;
-	}
-
-	/** Get the entry corresponding to a local cache file.
-	 * @param account The account where the path is located.
-	 * @param file The local cache file (actually it's the cache folder related to a remote file) 
-	 * @return an entry or null if the entry is not a valid cache file.
-	 */
-	final Entry getLocalEntry(Account account, File file) {
-		try {
-			// If the file is not starting with the file prefix, ignore it.
-			if (!file.getName().startsWith(FILE_PREFIX)) {
-				return null;
-			}
-			String[] files = file.list();
-			boolean ok = false;
-			if (files!=null) {
-				for (String fileName : files) {
-					if (isValidFile(fileName)) {
-						ok = true;
-						break;
-					}
-				}
-			}
-			// If the folder contains no valid file, try to repair the cache folder (delete the file)
-			//if (!ok) file.delete(); // Not sure it was a good idea
-			return ok?new Entry(account, URLDecoder.decode(file.getName().substring(FILE_PREFIX.length()), UTF_8)) : null;
-		} catch (UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
-		}
-	}
-	
-	/** Gets the local file where is stored the cached data.
-	 * @param uri an URI
-	 * @return a File
-	 */
-	public File getLocalFile(URI uri) {
-		// Implementation trick:
-		// We need to store the base revision of the cached file. We will store it using the file name.
-		// This file will be stored in a folder which name is easy to deduced from the entry name.
-		String fileName;
-		try {
-			Entry entry = getEntry(uri);
-			fileName = entry.getAccount().getRoot().getName()+"/"+FILE_PREFIX+URLEncoder.encode(entry.getDisplayName(), UTF_8);
-		} catch (UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
-		}
-		File cacheDirectory = new File(this.root, fileName);
-		if (cacheDirectory.isFile()) {
-			// hey ... there's a file where it should be a folder !!!
-			// Cache is corrupted, try to repair it
-			cacheDirectory.delete();
-		}
-		if (!cacheDirectory.exists()) {
-			cacheDirectory.mkdirs();
-		}
-		String[] files = cacheDirectory.list();
-		// If there's no cache file, return the default cache file
-		if ((files==null) || (files.length==0)) {
-			return new File(cacheDirectory, CACHE_PREFIX+ZIP_SUFFIX);
-		}
-		// There's at least one file in the cache, return the most recent (delete others)
-		File result = null;
-		for (String f : files) {
-			File candidate = new File(cacheDirectory, f);
-			if (isValidFile(f) && ((result==null) || (candidate.lastModified()>result.lastModified()))) {
-				if (result!=null) {
-					result.delete();
-				}
-				result = candidate;
-			} else {
-				candidate.delete();
-			}
-		}
-		return result!=null?result:new File(cacheDirectory, CACHE_PREFIX+ZIP_SUFFIX);
-	}
-	
-	private boolean isValidFile(String fileName) {
-		return (fileName.startsWith(SYNCHRONIZED_CACHE_PREFIX) || fileName.startsWith(CACHE_PREFIX)) && fileName.endsWith(ZIP_SUFFIX);
-	}
-	
-	/** Gets the file where the URI should be written.
-	 * <br>File name is used to store the synchronization state of an uri.
-	 * <br>So, when we update a file, we have to store it in a file that will denote that updated data is not synchronized yet.
-	 * <br>Later, the synchronization process will change the name of this file in order to mark it synchronized. 
-	 * @param uri an URI
-	 * @return a file
-	 * @see #getLocalFile(URI)
-	 */
-	public final File getLocalFileForWriting(URI uri) {
-		File file = getLocalFile(uri);
-		File parentFile = file.getParentFile();
-		if (file.getName().startsWith(SYNCHRONIZED_CACHE_PREFIX)) {
-			String name = file.getName().substring(SYNCHRONIZED_CACHE_PREFIX.length());
-			file = new File(parentFile, CACHE_PREFIX+name);
-		}
-		//Be aware that there could be some corrupted data in the cache folder.
-		//We will try to repair it (example: the parent folder should be a file, not a folder !)
-		if (parentFile.isFile()) {
-			parentFile.delete();
-		}
-		if (!parentFile.exists()) {
-			parentFile.mkdirs();
-		}
-		return file;
-	}
-	
-	/** Gets the revision on which the local cache of an URI is based.
-	 * <br>This revision was the remote one last time local and cloud copies were successfully synchronized. 
-	 * @param uri The URI.
-	 * @return A String that identifies the revision or null if the local cache doesn't exist or has never been synchronized with the cloud source.
-	 */
-	public final String getLocalRevision(URI uri) {
-		if (local) {
-			return getLocalFile(uri).exists() ? "1":null;
-		}
-		File file = getLocalFile(uri);
-		if (!file.exists()) {
-			return null;
-		}
-		String name = file.getName();
-		String revision = name.substring(name.startsWith(CACHE_PREFIX) ? CACHE_PREFIX.length() : SYNCHRONIZED_CACHE_PREFIX.length());
-		revision = revision.substring(0, revision.length()-ZIP_SUFFIX.length());
-		return revision.length()==0?null:revision;
-	}
-
-	/** Sets the local cache revision of an URI.
-	 * <br>At the end of the synchronization process, the local cache will be marked as having the same revision as the remote URI.
-	 * @param uri the URI
-	 * @param revision The new revision (should never be null).
-	 */
-	public final void setLocalRevision(URI uri, String revision) {
-		File file = getLocalFile(uri);
-		file.renameTo(new File(file.getParent(), SYNCHRONIZED_CACHE_PREFIX+revision+ZIP_SUFFIX));
-	}
-	
-	/** Tests whether the local cache was synchronized.
-	 * <br>The important word here is <b>"was"</b>. This means that this method do not connect to the remote service
-	 * in order to compare the local and the remote revision.
-	 * <br>In a scenario where the local file was synchronized, then the remote URI was updated later, this method will returns true whenever the local file
-	 * is not a copy of the remote one. 
-	 * @param uri The URI
-	 * @return true if the file was synchronized.
-	 */
-	public final boolean isSynchronized(URI uri) {
-		return local || getLocalFile(uri).getName().startsWith(SYNCHRONIZED_CACHE_PREFIX);
-	}
-	
-	/** Gets the remote path of an entry.
-	 * <br>By default, this method returns the local path preceded by a '/' and followed by ".zip", indicating that the file is zipped on the cloud storage.
-	 * <br>If you override this method to change that, don't forget to override getRemoteEntry too. 
-	 * @param entry The entry
-	 * @return the remote path
-	 * @see #getRemoteEntry(Account, String)
-	 */
-	public String getRemotePath(Entry entry) {
-		return '/'+entry.getDisplayName()+ZIP_SUFFIX;
-	}
-
-	/** Converts a remote path to an entry.
-	 * <br>This method can be used by getRemoteFiles method in order to filter remote files.
-	 * <br>By default, this method returns the remote path without its ".zip" suffix. If the path begins with a '/', it is removed.
-	 * <br>If remote path does not end with ".zip", it returns null in order to have this file ignored. 
-	 * <br>If you override this method to change that behavior, don't forget to override getRemotePath too. 
-	 * @param account The account
-	 * @param remotePath The remote path
-	 * @return An entry or null if the entry should be ignored
-	 * @see #getRemoteEntries(Account, Cancellable)
-	 * @see #getRemotePath(Entry)
-	 */
-	protected Entry getRemoteEntry(Account account, String remotePath) {
-		if (!remotePath.endsWith(ZIP_SUFFIX)) {
-			return null;
-		}
-		remotePath = remotePath.substring(0, remotePath.length()-ZIP_SUFFIX.length());
-		return new Entry (account, remotePath.charAt(0)=='/'?remotePath.substring(1):remotePath);
-	}
-	
-	/** Gets the URI of an entry.
-	 * @param entry An entry
-	 * @return The entry's URI
-	 */
-	public final URI getURI(Entry entry) {
-		try {
-			return new URI(toString(entry, false));
-		} catch (URISyntaxException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	/** Gets a string representation of an URI that can safely be displayed on a screen.
-	 * <br>URI may contains secret informations (example: password).
-	 * <br>By default, this method returns the uri without the account id, the connection data and the URI domain.
-	 * @param uri The uri.
-	 * @return a String. Let say entry is the entry corresponding to the uri, this implementation returns the getScheme()://entry.getAccountName()/entry.getDisplayName().
-	 */
-	public String getDisplayable(URI uri) {
-		return toString(getEntry(uri), true);
-	}
-
-	private String toString(Entry entry, boolean secret) {
-		try {
-			Account account = entry.getAccount();
-			String path = entry.getDisplayName();
-			StringBuilder builder = new StringBuilder();
-			builder.append(getScheme());
-			builder.append("://");
-			if (!secret) {
-				builder.append(URLEncoder.encode(account.getId(), UTF_8));
-				builder.append(":");
-				builder.append(getConnectionDataURIFragment(account.getConnectionData()));
-				builder.append('@');
-				builder.append(URI_DOMAIN);
-				builder.append('/');
-			}
-			builder.append(URLEncoder.encode(account.getDisplayName(), UTF_8));
-			builder.append('/');
-			if (path.startsWith("/")) {
-				path = path.substring(1);
-			}
-			builder.append(URLEncoder.encode(path, UTF_8));
-			return builder.toString();
-		} catch (UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	/** Gets the scheme of uri managed by this service.
-	 * <br>Files are identified by uri. This method returns the scheme of the uri of files managed by this service.
-	 * You're free to define what scheme you want but scheme is considered as a unique id for services.
-	 * @return the service uri scheme
-	 */
-	public abstract String getScheme();
-
-	/** Gets an Entry from its URI.
-	 * @param uri An URI
-	 * @return an Entry.
-	 * @throws IllegalArgumentException if the uri is not supported or has a wrong format
-	 */
-	public abstract Entry getEntry(URI uri);
-	
-	/** Gets the entries that are stored remotely by the cloud service.
-	 * @param account The account
-	 * @param task A Cancellable instance that will report the progress or null.
-	 * @return A collection of entries 
-	 * @throws JClopException if something goes wrong.
-	 * @see Account#getLocalEntries()
-	 */
-	public abstract Collection<Entry> getRemoteEntries(Account account, Cancellable task) throws JClopException;
-	
-	/** Gets the URI fragment equivalent to some connection data.
-	 * @param connectionData The connection data
-	 * @return a string, an URI fragment.
-	 * <br>As the fragment is a part of an URI, it should be encoded to not contain reserved characters.
-	 * @see #getConnectionData(String)
-	 */
-	public abstract String getConnectionDataURIFragment(Serializable connectionData);
-	
-	/** Converts an URI fragment to connection data.
-	 * <br>Connection data is data that is used to connect to an account (for example, with a ftp service, the user password).
-	 * @param uriFragment The URI fragment.
-	 * <br>Please note that the URI fragment is a part of an URI. So, it should have been encoded to remove URI reserved chars.
-	 * @return The connection data
-	 * @see #getConnectionDataURIFragment(Serializable)
-	 */
-	public abstract Serializable getConnectionData(String uriFragment);
-	
-	/** Gets the remote revision of an URI.
-	 * <br>The remote revision is unique id that identifies the revision of a file.
-	 * <br>There's no order relation between revisions.
-	 * @param uri The uri
-	 * @return a String or null if the entry does not exist remotely
-	 * @throws JClopException if something goes wrong.
-	 */
-	public abstract String getRemoteRevision(URI uri) throws JClopException;
-
-	/** Downloads data from a cloud uri.
-	 * @param uri The entry to download.
-	 * @param out The stream where to download.
-	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
-	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
-	 * @return true if the upload is done, false if it was cancelled
-	 * @throws JClopException if something goes wrong while accessing the URI.
-	 * @throws IOException if something goes wrong while writing to the output stream.
-	 */
-	public abstract boolean download(URI uri, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException;
-	
-	/** Uploads data to a cloud destination uri.
-	 * @param in The inputStream from which to read to uploaded bytes
-	 * @param length The number of bytes to upload
-	 * @param uri The URI where to upload.
-	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the upload if the task is cancelled.
- 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
-	 * @return true if the upload is done, false if it was cancelled
-	 * @throws JClopException if something goes wrong while accessing the URI.
-	 * @throws IOException if something goes wrong while reading from the input stream.
-	 */
-	public abstract boolean upload(InputStream in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException;
-	
-	/** Downloads data from a cloud uri to a cache file.
-	 * Whatever is the synchronization state, this method forces the remote file to replace current cached file.
-	 * @param uri The entry to download.
-	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
-	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
-	 * @return true if the upload is done, false if it was cancelled
-	 * @throws JClopException if something goes wrong while accessing the URI.
-	 * @throws IOException if something goes wrong while writing to the local cache.
-	 */
-	public final boolean download(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
-		if (local) {
-			return true;
-		}
-		File file = getLocalFile(uri);
-		file.getParentFile().mkdirs();
-		String revision = null;
-		String downloadedRevision = ""; //$NON-NLS-1$
-		// We do not download directly to the target file, to prevent file from being corrupted if the copy fails
-		File tmpFile = new File(file.getParent(), file.getName()+".tmp"); //$NON-NLS-1$
-		boolean done = true;
-		while (done && !NullUtils.areEquals(revision, downloadedRevision)) {
-			// While the downloaded revision is not the last one on the server (maybe the remote file is updated while we download it)
-			downloadedRevision = getRemoteRevision(uri);
-			OutputStream out = new FileOutputStream(tmpFile);
-			try {
-				done = download(uri, out, task, locale);
-			} finally {
-				out.close();
-			}
-			revision = getRemoteRevision(uri);
-		}
-		if (done) {
-			file.delete();
-			tmpFile.renameTo(file);
-			setLocalRevision(uri, revision);
-		} else {
-			tmpFile.delete();
-		}
-		return done;
-	}
-
-	/** Uploads an URI from the cache to the remote service.
-	 * Whatever is the synchronization state, this method forces the cached file to replace current remote file.
-	 * @param uri The URI to upload
-	 * @param task A cancellable to report the progress or cancel the task.
- 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
-	 * @return true if the uri was successfully uploaded
-	 * @throws JClopException if something goes wrong while accessing the URI.
-	 * @throws IOException if something goes wrong while reading from the local cache.
-	 */
-	public final boolean upload(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
-		if (local) {
-			return true;
-		}
-		File file = getLocalFile(uri);
-		long length = file.length();
-		boolean done = false;
-		FileInputStream stream = new FileInputStream(file);
-		try {
-			done = upload(stream, length, uri, task, locale);
-		} finally {
-			stream.close();
-		}
-		if (done) {
-			setLocalRevision(uri, getRemoteRevision(uri));
-		}
-		return done;
-	}
-	
-	/** Synchronizes local cache and remote resource.
-	 * @param uri The remote URI
-	 * @param task A cancellable to report the progress or cancel the task.
- 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
-	 * @return The synchronization state
-	 * @throws FileNotFoundException if neither the remote resource nor its cache file does exist 
-	 * @throws JClopException if something goes wrong while accessing the URI.
-	 * @throws IOException if something goes wrong while accessing the local cache.
-	 */
-	public SynchronizationState synchronize(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
-		String remoteRevision = getRemoteRevision(uri);
-		String localRevision = getLocalRevision(uri);
-//System.out.println("remote rev: "+remoteRevision+", local rev:"+localRevision);
-		File file = getLocalFile(uri);
-		if (remoteRevision==null) {
-			// If remote uri doesn't exist
-			if (!file.exists()) {
-				// The local cache doesn't exist
-				throw new FileNotFoundException();
-			}
-			if (localRevision==null) {
-				// The local cache was never synchronized -> Upload the cache to server
-				upload(uri, task, locale); 
-				return SynchronizationState.SYNCHRONIZED;
-			} else {
-				// Remote was deleted
-				return SynchronizationState.REMOTE_DELETED;
-			}
-		} else {
-			// The remote uri exists
-			if (remoteRevision.equals(localRevision)) {
-				// Cache and remote have the same origin 
-				if (isSynchronized(uri)) {
-					// The cache and the remote are the same
-					return SynchronizationState.SYNCHRONIZED;
-				} else {
-					// cache was changed but not yet uploaded
-					upload(uri, task, locale);
-					return SynchronizationState.SYNCHRONIZED;
-				}
-			} else {
-				// Cache and remote have not the same origin
-				if (!file.exists()) { // The local cache doesn't exist
-					download(uri, task, locale);
-					return SynchronizationState.SYNCHRONIZED;
-				} else {
-					// The local cache exists
-					if (isSynchronized(uri)) {
-						// The local cache was already synchronized
-						// This means the cloud has been modified after the cache was synchronized
-						download(uri, task, locale);
-						return SynchronizationState.SYNCHRONIZED;
-					} else {
-						// The local cache was not synchronized with the remote uri
-						return SynchronizationState.CONFLICT;
-					}
-				}
-			}
-		}
-	}
-
-	public String getMessage(String key, Locale locale) {
-		return MessagePack.DEFAULT.getString(key, locale);
-	}
-
-	/** Deletes the local cache of an uri.
-	 * <br>If the local cache doesn't exists, does nothing.
-	 * @param uri
-	 */
-	public void deleteLocal(URI uri) {
-		FileUtils.deleteDirectory(getLocalFile(uri).getParentFile());
-	}
-
-	/** Gets an account by its id.
-	 * @param id The account id
-	 * @return An account or null if the account is unknown
-	 */
-	public synchronized Account getAccount(String id) {
-		for (Account account : accounts) {
-			if (account.getId().equals(id)) {
-				return account;
-			}
-		}
-		return null;
-	}
-}
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fathzer.soft.ajlib.utilities.FileUtils;
+import com.fathzer.soft.ajlib.utilities.NullUtils;
+import com.fathzer.soft.jclop.swing.MessagePack;
+
+/** A persistence service.
+ * <br>There's two kinds of services :<ul>
+ * <li>Cloud services, with accounts synchronized with a local cache.</li>
+ * <li>Local services, that typically store data onto disk</li>
+ * </ul>
+ * <br>Limitation: Account can't contain folder.
+ * @author Jean-Marc Astesana
+ * Licence GPL v3
+ */
+public abstract class Service {
+	private static final Logger LOGGER = LoggerFactory.getLogger(Service.class);
+	public static final String UTF_8 = "UTF-8";
+	static final String ZIP_SUFFIX = ".zip"; //$NON-NLS-1$
+	static final String FILE_PREFIX = "f_";
+	static final String CACHE_PREFIX = "cache"; //$NON-NLS-1$
+	private static final String SYNCHRONIZED_CACHE_PREFIX = "sync"; //$NON-NLS-1$
+	/** The prefix of the files, stored in an entry's cache folder, that contain data about the cached file (not the cached file itself). */ 
+	static final String AUXILIARY_PREFIX = "."; //$NON-NLS-1$
+	private static final String SIGNATURE_FILE = AUXILIARY_PREFIX+"signature"; //$NON-NLS-1$
+	private static final String HASH_FILE = AUXILIARY_PREFIX+"hash"; //$NON-NLS-1$
+
+	public static final String URI_DOMAIN = "cloud.jclop.fathzer.com";
+	/** The default time during which a remote revision obtained as a side effect of another remote call is used (in ms). */
+	public static final long DEFAULT_REMOTE_REVISION_TTL = 10000;
+	/** The default maximum number of attempts to download a file that is modified during the download. */
+	public static final int DEFAULT_DOWNLOAD_ATTEMPTS = 5;
+	/** The default delay before the second attempt to download a file that was modified during the download (in ms). */
+	public static final long DEFAULT_DOWNLOAD_RETRY_DELAY = 500;
+	/** The default size of chunks of chunked transfers (in bytes). */
+	public static final int DEFAULT_CHUNK_SIZE = 4*1024*1024;
+	/** The default size of the blocks used to compute the differences between two versions of a file (in bytes). */
+	public static final int DEFAULT_DELTA_BLOCK_SIZE = 8*1024;
+
+	private File root;
+	private boolean local;
+	/** The accounts indexed by their ids. */
+	private final ConcurrentMap<String, Account> accounts;
+	/** The folders of the accounts that are not loaded yet, indexed by the accounts ids. */
+	private final ConcurrentMap<String, File> pendingAccounts;
+	/** An immutable snapshot of the accounts, or null if it has to be rebuilt. */
+	private volatile Collection<Account> accountsSnapshot;
+	private final CacheIndex cacheIndex;
+	private final EntryLocks locks;
+	private final RemoteRevisionCache remoteRevisions;
+	private int maxDownloadAttempts;
+	private long downloadRetryDelay;
+	private int chunkSize;
+	private int deltaBlockSize;
+	private volatile ServiceMetrics metrics;
+
+	/** Constructor.
+	 * @param root The root folder of the services (the place where all accounts of all services are cached).<br>
+	 * null if the service doesn't need any cache.
+	 * @param local true if the service is a local one, false if it stores its data in the cloud.
+	 * <br>Each service can use a folder in the root folder, where all the accounts it manages are cached.
+	 * <br>This folder will be named with the service scheme.
+	 * <br>For example, if your root is "/home/user/.MyApp/cache" and getScheme() returns "MyService",
+	 * the cached data will be placed in "/home/user/.MyApp/cache/MyService".
+	 * @throws IOException If an error occurs while accessing to the local cache
+	 * @throws IllegalArgumentException if it is not possible to create the service folder (or service folder exists but is a file, not a folder)
+	 * @see #getScheme()  
+	 */
+	protected Service(File root, boolean local) throws IOException {
+		this.local = local;
+		this.accounts = new ConcurrentHashMap<String, Account>();
+		this.pendingAccounts = new ConcurrentHashMap<String, File>();
+		this.cacheIndex = new CacheIndex(this);
+		this.locks = new EntryLocks();
+		this.remoteRevisions = new RemoteRevisionCache(DEFAULT_REMOTE_REVISION_TTL);
+		this.maxDownloadAttempts = DEFAULT_DOWNLOAD_ATTEMPTS;
+		this.downloadRetryDelay = DEFAULT_DOWNLOAD_RETRY_DELAY;
+		this.chunkSize = DEFAULT_CHUNK_SIZE;
+		this.deltaBlockSize = DEFAULT_DELTA_BLOCK_SIZE;
+		if (!local) {
+			root = new File(root, getScheme());
+			if (!root.exists()) {
+				if (!root.mkdirs()) {
+					throw new IOException("Unable to create cache directory");
+				}
+			}
+			if (!root.isDirectory()) {
+				throw new IllegalArgumentException();
+			}
+			this.root = root;
+			/* Builds the account list from the file cache content.
+			 * This doesn't call the cloud service to get the list of remote accounts.
+			 * Only the folders are listed here, the accounts data is loaded when an account is requested.
+			 */
+			File[] files = root.listFiles();
+			for (File file : files) {
+				if (file.isDirectory()) {
+					try {
+						pendingAccounts.put(URLDecoder.decode(file.getName(), UTF_8), file);
+					} catch (Exception e) {
+						// Something is wrong in the account folder name, ignore it
+						LOGGER.warn(file+" is ignored", e);
+					}
+				}
+			}
+		}
+	}
+	
+	public final boolean isLocal() {
+		return local;
+	}
+	
+	/** Creates a new account.
+	 * @param id The account's id
+	 * @param displayName The account's display name
+	 * @param connectionData The data necessary to connect with the account
+	 * @return The created account
+	 * @throws IllegalArgumentException if an account with the same id already exists
+	 */
+	public synchronized Account newAccount(String id, String displayName, Serializable connectionData) {
+		if (id==null) {
+			throw new NullPointerException();
+		}
+		if (getAccount(id)!=null) {
+			throw new IllegalArgumentException(); 
+		}
+		Account account = new Account(this, id, displayName, connectionData);
+		account.serialize();
+		accounts.put(id, account);
+		accountsSnapshot = null;
+		return account;
+	}
+	
+	/** Deletes an account.
+	 * @param account The account to delete. If the account doesn't exist, this method does nothing.
+	 */
+	public synchronized void delete(Account account) {
+		if (getAccount(account.getId())!=null) {
+			FileUtils.deleteDirectory(account.getRoot());
+			cacheIndex.remove(account);
+			remoteRevisions.remove(account);
+			accounts.remove(account.getId());
+			accountsSnapshot = null;
+		}
+	}
+	
+	/** Gets the available accounts.
+	 * <br>The returned collection is an immutable snapshot, it is not updated when accounts are created or deleted.
+	 * @return A collection of available accounts
+	 */
+	public final Collection<Account> getAccounts() {
+		Collection<Account> result = accountsSnapshot;
+		if (result==null) {
+			synchronized (this) {
+				loadAccounts();
+				result = Collections.unmodifiableList(new ArrayList<Account>(accounts.values()));
+				accountsSnapshot = result;
+			}
+		}
+		return result;
+	}
+
+	/** Loads, in parallel, all the accounts that are not loaded yet.
+	 * <br>Accounts that can't be loaded are ignored.
+	 */
+	private synchronized void loadAccounts() {
+		if (pendingAccounts.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(pendingAccounts.size(), Runtime.getRuntime().availableProcessors()*2));
+		try {
+			Map<String, Future<Account>> loaded = new HashMap<String, Future<Account>>();
+			for (final Map.Entry<String, File> pending : pendingAccounts.entrySet()) {
+				loaded.put(pending.getKey(), executor.submit(new Callable<Account>() {
+					@Override
+					public Account call() throws Exception {
+						return new Account(Service.this, pending.getValue());
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<Account>> future : loaded.entrySet()) {
+				File file = pendingAccounts.remove(future.getKey());
+				try {
+					addLoadedAccount(future.getValue().get());
+				} catch (ExecutionException e) {
+					// Something is wrong in the account folder, ignore it
+					LOGGER.warn(file+" is ignored", e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			// The accounts that are not loaded yet remain pending
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** Loads an account that is not loaded yet.
+	 * @param id The account id
+	 * @return the account or null if there's no pending account with this id or it can't be loaded.
+	 */
+	private synchronized Account loadAccount(String id) {
+		File file = pendingAccounts.remove(id);
+		if (file==null) {
+			// The account is unknown or was loaded by another thread
+			return accounts.get(id);
+		}
+		try {
+			return addLoadedAccount(new Account(this, file));
+		} catch (Exception e) {
+			// Something is wrong in the account folder, ignore it
+			LOGGER.warn(file+" is ignored", e);
+			return null;
+		}
+	}
+
+	private Account addLoadedAccount(Account account) {
+		Account other = accounts.putIfAbsent(account.getId(), account);
+		if (other!=null) {
+			LOGGER.warn(account.getRoot()+" is ignored, another folder contains account "+account.getId());
+			return other;
+		}
+		accountsSnapshot = null;
+		return account;
+	}
+	
+	File getCacheRoot() {
+		return root;
+	}
+
+	/** Get the entry corresponding to a local cache file.
+	 * @param account The account where the path is located.
+	 * @param file The local cache file (actually it's the cache folder related to a remote file) 
+	 * @return an entry or null if the entry is not a valid cache file.
+	 */
+	final Entry getLocalEntry(Account account, File file) {
+		try {
+			// If the file is not starting with the file prefix, ignore it.
+			if (!file.getName().startsWith(FILE_PREFIX)) {
+				return null;
+			}
+			String[] files = file.list();
+			File cache = null;
+			if (files!=null) {
+				for (String fileName : files) {
+					if (isValidFile(fileName)) {
+						// If there's more than one valid file, the most recent one is the cache
+						File candidate = new File(file, fileName);
+						if ((cache==null) || (candidate.lastModified()>cache.lastModified())) {
+							cache = candidate;
+						}
+					}
+				}
+			}
+			// If the folder contains no valid file, try to repair the cache folder (delete the file)
+			//if (cache==null) file.delete(); // Not sure it was a good idea
+			return cache!=null?new Entry(account, URLDecoder.decode(file.getName().substring(FILE_PREFIX.length()), UTF_8),
+					getCacheInfo(cache.getName(), cache.length(), cache.lastModified())) : null;
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/** Gets the local file where is stored the cached data.
+	 * <br>The cache state is kept in memory, so, usually, this method does not access the file system.
+	 * If the cache folder could be modified by someone else than this service, see {@link #setCacheMonitored(boolean)}.
+	 * @param uri an URI
+	 * @return a File
+	 */
+	public File getLocalFile(URI uri) {
+		// Implementation trick:
+		// We need to store the base revision of the cached file. We will store it using the file name.
+		// This file will be stored in a folder which name is easy to deduced from the entry name.
+		long start = startOperation();
+		File file = cacheIndex.getFile(getEntry(uri));
+		endOperation(ServiceMetrics.Operation.CACHE_LOOKUP, start, true);
+		return file;
+	}
+	
+	/** Gets the folder where an entry is cached.
+	 * @param entry an entry
+	 * @return a File
+	 */
+	File getCacheFolder(Entry entry) {
+		String fileName;
+		try {
+			fileName = entry.getAccount().getRoot().getName()+"/"+FILE_PREFIX+URLEncoder.encode(entry.getDisplayName(), UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		return new File(this.root, fileName);
+	}
+	
+	static boolean isValidFile(String fileName) {
+		return (fileName.startsWith(SYNCHRONIZED_CACHE_PREFIX) || fileName.startsWith(CACHE_PREFIX)) && fileName.endsWith(ZIP_SUFFIX);
+	}
+	
+	/** Sets whether this service detects modifications made to its cache folder by someone else.
+	 * <br>By default, the cache state is kept in memory and this service assumes it is the only one to modify the cache folder.
+	 * If this is not the case (for example, if another process shares the same cache folder), this method can be used
+	 * to have the state checked against the file system each time it is used (it costs one file system call).
+	 * @param monitored true to detect external modifications, false to trust the memory state.
+	 * @see #clearCacheIndex()
+	 */
+	public void setCacheMonitored(boolean monitored) {
+		cacheIndex.setMonitored(monitored);
+	}
+	
+	/** Forgets the cache state kept in memory.
+	 * <br>The cache folders will be scanned again the next time they are used.
+	 * This method can be called after the cache folder was modified by someone else than this service.
+	 * @see #setCacheMonitored(boolean)
+	 */
+	public void clearCacheIndex() {
+		cacheIndex.clear();
+	}
+
+	/** Sets whether this service maintains a manifest of each account's cache.
+	 * <br>The manifest records the cached entries of an account and the state of their cache in a single file of the account's
+	 * cache folder. When enabled, {@link Account#getLocalEntries()} reads this file instead of listing every entry's folder,
+	 * and the state of an entry is known without scanning its folder.
+	 * <br>The manifest of an account is built from its cache folders the first time it is needed, so existing caches are
+	 * migrated automatically. If manifests are disabled later, the manifests are deleted as soon as their account's cache changes.
+	 * <br>By default, manifests are disabled.
+	 * @param enabled true to enable manifests
+	 */
+	public void setAccountManifestEnabled(boolean enabled) {
+		cacheIndex.setManifestEnabled(enabled);
+	}
+
+	/** Gets the cached entries of an account from its manifest.
+	 * @param account The account
+	 * @return the entries, or null if manifests are disabled.
+	 * @see #setAccountManifestEnabled(boolean)
+	 */
+	Collection<Entry> getManifestEntries(Account account) {
+		return cacheIndex.isManifestEnabled() ? cacheIndex.getEntries(account) : null;
+	}
+	
+	/** Gets the file where the URI should be written.
+	 * <br>File name is used to store the synchronization state of an uri.
+	 * <br>So, when we update a file, we have to store it in a file that will denote that updated data is not synchronized yet.
+	 * <br>Later, the synchronization process will change the name of this file in order to mark it synchronized. 
+	 * @param uri an URI
+	 * @return a file
+	 * @see #getLocalFile(URI)
+	 */
+	public final File getLocalFileForWriting(URI uri) {
+		File file = getLocalFile(uri);
+		File parentFile = file.getParentFile();
+		if (file.getName().startsWith(SYNCHRONIZED_CACHE_PREFIX)) {
+			String name = file.getName().substring(SYNCHRONIZED_CACHE_PREFIX.length());
+			file = new File(parentFile, CACHE_PREFIX+name);
+		}
+		//Be aware that there could be some corrupted data in the cache folder.
+		//We will try to repair it (example: the parent folder should be a file, not a folder !)
+		if (parentFile.isFile()) {
+			parentFile.delete();
+		}
+		if (!parentFile.exists()) {
+			parentFile.mkdirs();
+		}
+		if (!local) {
+			cacheIndex.setPending(getEntry(uri), file);
+		}
+		return file;
+	}
+	
+	/** Gets the revision on which the local cache of an URI is based.
+	 * <br>This revision was the remote one last time local and cloud copies were successfully synchronized. 
+	 * @param uri The URI.
+	 * @return A String that identifies the revision or null if the local cache doesn't exist or has never been synchronized with the cloud source.
+	 */
+	public final String getLocalRevision(URI uri) {
+		if (local) {
+			return getLocalFile(uri).exists() ? "1":null;
+		}
+		File file = getLocalFile(uri);
+		if (!file.exists()) {
+			return null;
+		}
+		return getCacheRevision(file.getName());
+	}
+
+	/** Gets the revision encoded in the name of a cache file.
+	 * @param fileName A valid cache file name (see {@link #isValidFile(String)})
+	 * @return A revision or null if the cache has never been synchronized.
+	 */
+	private static String getCacheRevision(String fileName) {
+		String revision = fileName.substring(fileName.startsWith(CACHE_PREFIX) ? CACHE_PREFIX.length() : SYNCHRONIZED_CACHE_PREFIX.length());
+		revision = revision.substring(0, revision.length()-ZIP_SUFFIX.length());
+		return revision.length()==0?null:revision;
+	}
+
+	/** Gets the metadata of a cached entry.
+	 * @param fileName The name of the file that holds the cached data (see {@link #isValidFile(String)})
+	 * @param length The file's length
+	 * @param lastModified The file's last modification date
+	 * @return The entry's metadata
+	 */
+	static EntryInfo getCacheInfo(String fileName, long length, long lastModified) {
+		return new EntryInfo(length, lastModified, getCacheRevision(fileName), fileName.startsWith(SYNCHRONIZED_CACHE_PREFIX));
+	}
+
+	/** Sets the local cache revision of an URI.
+	 * <br>At the end of the synchronization process, the local cache will be marked as having the same revision as the remote URI.
+	 * <br>The content hash of the cache is recorded, in order to detect later that the cache was rewritten with the same content
+	 * (see {@link #synchronize(URI, Cancellable, Locale)}).
+	 * <br>The cache file is renamed. If it can't be (on Windows, a file can't be renamed while it is open, for instance by
+	 * {@link #openLocalFile(URI)}), it is copied. If the copy also fails, the failure is logged and the cache remains
+	 * not synchronized, so its content will be uploaded by the next synchronization.
+	 * @param uri the URI
+	 * @param revision The new revision (should never be null).
+	 */
+	public final void setLocalRevision(URI uri, String revision) {
+		if (local) {
+			doSetLocalRevision(uri, revision);
+			return;
+		}
+		EntryLocks.Lock lock = locks.lockLocally(getEntry(uri));
+		try {
+			doSetLocalRevision(uri, revision);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private void doSetLocalRevision(URI uri, String revision) {
+		long start = startOperation();
+		File file = getLocalFile(uri);
+		File synchronizedFile = new File(file.getParent(), SYNCHRONIZED_CACHE_PREFIX+revision+ZIP_SUFFIX);
+		boolean renamed = renameOrCopy(file, synchronizedFile);
+		if (renamed && !local) {
+			cacheIndex.setFile(getEntry(uri), synchronizedFile);
+			File hashFile = new File(file.getParent(), HASH_FILE);
+			try {
+				ContentHash.compute(synchronizedFile, revision).write(hashFile);
+			} catch (IOException e) {
+				LOGGER.warn("Unable to save the content hash of "+synchronizedFile, e);
+				hashFile.delete();
+			}
+		}
+		endOperation(ServiceMetrics.Operation.CACHE_UPDATE, start, renamed);
+	}
+	
+	/** Marks the local cache synchronized again if its content was not changed since it was synchronized.
+	 * <br>Applications often save the data even if nothing changed. This method prevents such a save from triggering an upload.
+	 * @param uri The URI
+	 * @param localRevision The local revision
+	 * @return true if the cache was unchanged and is now marked synchronized.
+	 * @throws IOException if something goes wrong while reading the cache
+	 */
+	private boolean restoreIfUnchanged(URI uri, String localRevision) throws IOException {
+		File file = getLocalFile(uri);
+		ContentHash hash = ContentHash.read(new File(file.getParent(), HASH_FILE));
+		if ((hash==null) || !hash.getRevision().equals(localRevision) || !hash.matches(file)) {
+			return false;
+		}
+		File synchronizedFile = new File(file.getParent(), SYNCHRONIZED_CACHE_PREFIX+localRevision+ZIP_SUFFIX);
+		if (!renameOrCopy(file, synchronizedFile)) {
+			return false;
+		}
+		cacheIndex.setFile(getEntry(uri), synchronizedFile);
+		return true;
+	}
+
+	/** Renames a cache file.
+	 * <br>If the file can't be renamed (on Windows, an open file can't be renamed), it is copied, then the original file is
+	 * deleted if possible. An original file that can't be deleted is removed by the next scan of the cache folder.
+	 * @param file The file to rename
+	 * @param dest The new file
+	 * @return true if dest now contains the data of file. Failures are logged.
+	 */
+	private static boolean renameOrCopy(File file, File dest) {
+		if (file.renameTo(dest)) {
+			return true;
+		}
+		if (!file.isFile()) {
+			return false;
+		}
+		File tmp = new File(dest.getParent(), AUXILIARY_PREFIX+dest.getName()+".tmp"); //$NON-NLS-1$
+		try {
+			FileChannel in = new FileInputStream(file).getChannel();
+			try {
+				FileChannel out = new FileOutputStream(tmp).getChannel();
+				try {
+					long length = in.size();
+					for (long position = 0; position < length;) {
+						position += in.transferTo(position, length-position, out);
+					}
+					out.force(false);
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
+			if (!tmp.renameTo(dest) && !(dest.delete() && tmp.renameTo(dest))) {
+				throw new IOException("Unable to rename "+tmp+" to "+dest);
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Unable to rename or copy "+file+" to "+dest, e);
+			tmp.delete();
+			return false;
+		}
+		if (!file.delete()) {
+			LOGGER.debug("Unable to delete {}, it will be deleted later", file);
+		}
+		return true;
+	}
+	
+	/** Opens a read-only channel on the local cache of an URI.
+	 * <br>The channel reads the cache file as it was when this method was called. If the cache is then synchronized
+	 * (and the cache file renamed, or copied on systems where an open file can't be renamed, by {@link #setLocalRevision(URI, String)}),
+	 * the channel remains valid.
+	 * Please note that, as usual, the cache should not be written while it is read.
+	 * @param uri The URI
+	 * @return A channel positioned at the beginning of the file. The caller is responsible for closing it.
+	 * @throws FileNotFoundException if the URI is not cached.
+	 * @throws IOException if the cache file can't be opened.
+	 * @see #getLocalFile(URI)
+	 */
+	public FileChannel openLocalFile(URI uri) throws IOException {
+		if (local) {
+			return new FileInputStream(getLocalFile(uri)).getChannel();
+		}
+		// Prevents the file from being renamed between the moment we get it and the moment it is opened 
+		EntryLocks.Lock lock = locks.lockLocally(getEntry(uri));
+		try {
+			return new FileInputStream(getLocalFile(uri)).getChannel();
+		} finally {
+			lock.release();
+		}
+	}
+
+	/** Maps the local cache of an URI into memory.
+	 * <br>This allows to read a large cache file (for example, to jump to the central directory of a zip file) without copying it
+	 * on the heap. The mapping remains valid after the cache is synchronized (see {@link #openLocalFile(URI)}).
+	 * @param uri The URI
+	 * @return A read-only buffer.
+	 * @throws FileNotFoundException if the URI is not cached.
+	 * @throws IOException if the cache file can't be mapped (for instance, if its size exceeds 2GB).
+	 */
+	public MappedByteBuffer mapLocalFile(URI uri) throws IOException {
+		FileChannel channel = openLocalFile(uri);
+		try {
+			long size = channel.size();
+			if (size>Integer.MAX_VALUE) {
+				throw new IOException("File is too large to be mapped");
+			}
+			// The mapping remains valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/** Tests whether the local cache was synchronized.
+	 * <br>The important word here is <b>"was"</b>. This means that this method do not connect to the remote service
+	 * in order to compare the local and the remote revision.
+	 * <br>In a scenario where the local file was synchronized, then the remote URI was updated later, this method will returns true whenever the local file
+	 * is not a copy of the remote one. 
+	 * @param uri The URI
+	 * @return true if the file was synchronized.
+	 */
+	public final boolean isSynchronized(URI uri) {
+		return local || getLocalFile(uri).getName().startsWith(SYNCHRONIZED_CACHE_PREFIX);
+	}
+	
+	/** Gets the remote path of an entry.
+	 * <br>By default, this method returns the local path preceded by a '/' and followed by ".zip", indicating that the file is zipped on the cloud storage.
+	 * <br>If you override this method to change that, don't forget to override getRemoteEntry too. 
+	 * @param entry The entry
+	 * @return the remote path
+	 * @see #getRemoteEntry(Account, String)
+	 */
+	public String getRemotePath(Entry entry) {
+		return '/'+entry.getDisplayName()+ZIP_SUFFIX;
+	}
+
+	/** Converts a remote path to an entry.
+	 * <br>This method can be used by getRemoteFiles method in order to filter remote files.
+	 * <br>By default, this method returns the remote path without its ".zip" suffix. If the path begins with a '/', it is removed.
+	 * <br>If remote path does not end with ".zip", it returns null in order to have this file ignored. 
+	 * <br>If you override this method to change that behavior, don't forget to override getRemotePath too. 
+	 * @param account The account
+	 * @param remotePath The remote path
+	 * @return An entry or null if the entry should be ignored
+	 * @see #getRemoteEntries(Account, Cancellable)
+	 * @see #getRemotePath(Entry)
+	 */
+	protected Entry getRemoteEntry(Account account, String remotePath) {
+		if (!remotePath.endsWith(ZIP_SUFFIX)) {
+			return null;
+		}
+		remotePath = remotePath.substring(0, remotePath.length()-ZIP_SUFFIX.length());
+		return new Entry (account, remotePath.charAt(0)=='/'?remotePath.substring(1):remotePath);
+	}
+	
+	/** Gets the URI of an entry.
+	 * @param entry An entry
+	 * @return The entry's URI
+	 */
+	public final URI getURI(Entry entry) {
+		try {
+			return new URI(toString(entry, false));
+		} catch (URISyntaxException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Gets a string representation of an URI that can safely be displayed on a screen.
+	 * <br>URI may contains secret informations (example: password).
+	 * <br>By default, this method returns the uri without the account id, the connection data and the URI domain.
+	 * @param uri The uri.
+	 * @return a String. Let say entry is the entry corresponding to the uri, this implementation returns the getScheme()://entry.getAccountName()/entry.getDisplayName().
+	 */
+	public String getDisplayable(URI uri) {
+		return toString(getEntry(uri), true);
+	}
+
+	private String toString(Entry entry, boolean secret) {
+		try {
+			Account account = entry.getAccount();
+			String path = entry.getDisplayName();
+			StringBuilder builder = new StringBuilder();
+			builder.append(getScheme());
+			builder.append("://");
+			if (!secret) {
+				builder.append(URLEncoder.encode(account.getId(), UTF_8));
+				builder.append(":");
+				builder.append(getConnectionDataURIFragment(account.getConnectionData()));
+				builder.append('@');
+				builder.append(URI_DOMAIN);
+				builder.append('/');
+			}
+			builder.append(URLEncoder.encode(account.getDisplayName(), UTF_8));
+			builder.append('/');
+			if (path.startsWith("/")) {
+				path = path.substring(1);
+			}
+			builder.append(URLEncoder.encode(path, UTF_8));
+			return builder.toString();
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Gets the scheme of uri managed by this service.
+	 * <br>Files are identified by uri. This method returns the scheme of the uri of files managed by this service.
+	 * You're free to define what scheme you want but scheme is considered as a unique id for services.
+	 * @return the service uri scheme
+	 */
+	public abstract String getScheme();
+
+	/** Gets an Entry from its URI.
+	 * @param uri An URI
+	 * @return an Entry.
+	 * @throws IllegalArgumentException if the uri is not supported or has a wrong format
+	 */
+	public abstract Entry getEntry(URI uri);
+	
+	/** Gets the entries that are stored remotely by the cloud service.
+	 * <br>This method is implemented by the services, applications should call {@link Account#getRemoteEntries(Cancellable)}
+	 * (or {@link #getRemoteEntriesAsync(Account, Executor, Cancellable)}): a direct call to this method is not reported to the metrics
+	 * and the revisions of the listed entries are not remembered.
+	 * <br>Implementations that obtain the size, the modification date or the revision of the entries with the listing should
+	 * attach them to the entries (see {@link Entry#Entry(Account, String, EntryInfo)}). When the listing is made through
+	 * {@link Account#getRemoteEntries(Cancellable)}, the revisions are then remembered (see {@link #setRemoteRevisionTTL(long)})
+	 * and the synchronizations that follow the listing do not ask for them again.
+	 * @param account The account
+	 * @param task A Cancellable instance that will report the progress or null.
+	 * @return A collection of entries 
+	 * @throws JClopException if something goes wrong.
+	 * @see Account#getLocalEntries()
+	 */
+	public abstract Collection<Entry> getRemoteEntries(Account account, Cancellable task) throws JClopException;
+
+	/** Gets the entries that are stored remotely by the cloud service, page by page.
+	 * <br>Services whose remote API lists the entries by pages should override this method in order to deliver each page
+	 * as soon as it is received, so that the user can see the first entries of a large account without waiting for the whole listing.
+	 * <br>The default implementation calls {@link #getRemoteEntries(Account, Cancellable)} and delivers all the entries in a single page.
+	 * @param account The account
+	 * @param task A Cancellable instance that will report the progress or null.
+	 * @param listener The listener that receives the pages.
+	 * @throws JClopException if something goes wrong.
+	 * @see Account#getRemoteEntries(Cancellable, RemoteEntriesListener)
+	 */
+	protected void getRemoteEntries(Account account, Cancellable task, RemoteEntriesListener listener) throws JClopException {
+		listener.entriesFound(getRemoteEntries(account, task));
+	}
+	
+	/** Gets the URI fragment equivalent to some connection data.
+	 * @param connectionData The connection data
+	 * @return a string, an URI fragment.
+	 * <br>As the fragment is a part of an URI, it should be encoded to not contain reserved characters.
+	 * @see #getConnectionData(String)
+	 */
+	public abstract String getConnectionDataURIFragment(Serializable connectionData);
+	
+	/** Converts an URI fragment to connection data.
+	 * <br>Connection data is data that is used to connect to an account (for example, with a ftp service, the user password).
+	 * @param uriFragment The URI fragment.
+	 * <br>Please note that the URI fragment is a part of an URI. So, it should have been encoded to remove URI reserved chars.
+	 * @return The connection data
+	 * @see #getConnectionDataURIFragment(Serializable)
+	 */
+	public abstract Serializable getConnectionData(String uriFragment);
+
+	/** Encodes connection data in order to store it in the account's cache folder.
+	 * <br>The default implementation returns the URI fragment of the connection data.
+	 * Override this method (and {@link #decodeConnectionData(String)}) if the connection data should be stored differently.
+	 * @param connectionData The connection data (not null)
+	 * @return A String
+	 * @see #getConnectionDataURIFragment(Serializable)
+	 */
+	protected String encodeConnectionData(Serializable connectionData) {
+		return getConnectionDataURIFragment(connectionData);
+	}
+
+	/** Decodes connection data stored in the account's cache folder.
+	 * @param encoded The string returned by {@link #encodeConnectionData(Serializable)}
+	 * @return The connection data
+	 * @see #getConnectionData(String)
+	 */
+	protected Serializable decodeConnectionData(String encoded) {
+		return getConnectionData(encoded);
+	}
+
+	/** Tests whether a class can be read from an account file written by a previous version of this library.
+	 * <br>These files were written with Java serialization. In order to prevent a tampered file from instantiating arbitrary classes,
+	 * only Strings, boxed primitives, arrays of primitives and the classes accepted by this method can be read.
+	 * <br>The default implementation accepts no other class. A service whose connection data had another class should override
+	 * this method to accept it (and the classes of its fields).
+	 * @param className The class name, as returned by {@link Class#getName()}
+	 * @return true if the class can be read.
+	 */
+	protected boolean isLegacyConnectionDataClass(String className) {
+		return false;
+	}
+	
+	/** Gets the remote revision of an URI.
+	 * <br>The remote revision is unique id that identifies the revision of a file.
+	 * <br>There's no order relation between revisions.
+	 * @param uri The uri
+	 * @return a String or null if the entry does not exist remotely
+	 * @throws JClopException if something goes wrong.
+	 */
+	public abstract String getRemoteRevision(URI uri) throws JClopException;
+
+	/** Gets the remote revisions of several URIs.
+	 * <br>The revisions recently obtained as a side effect of another remote call (see {@link #cacheRemoteRevisions(Account, Map)})
+	 * are used, the others are obtained by calling {@link #getRemoteRevision(URI)}.
+	 * <br>The returned revisions are remembered, so a synchronization of these URIs performed just after this call
+	 * will not ask for them again.
+	 * <br>Services that are able to get the revisions of many files with a single remote call (typically a folder listing)
+	 * should override this method.
+	 * @param uris The uris
+	 * @return A map between the uris and their revisions (a null revision means the entry does not exist remotely).
+	 * @throws JClopException if something goes wrong.
+	 * @see #setRemoteRevisionTTL(long)
+	 */
+	public Map<URI, String> getRemoteRevisions(Collection<URI> uris) throws JClopException {
+		Map<URI, String> result = new HashMap<URI, String>();
+		for (URI uri : uris) {
+			if (local) {
+				result.put(uri, fetchRemoteRevision(uri));
+				continue;
+			}
+			Entry entry = getEntry(uri);
+			RemoteRevisionCache.Revision revision = remoteRevisions.get(entry);
+			if (revision!=null) {
+				result.put(uri, revision.getValue());
+			} else {
+				String value = fetchRemoteRevision(uri);
+				remoteRevisions.put(entry, value);
+				result.put(uri, value);
+			}
+		}
+		return result;
+	}
+
+	/** Remembers the remote revision of an entry.
+	 * <br>This method should be called by implementations that obtain a remote revision as a side effect of another call
+	 * (for example, an upload that returns the revision of the uploaded file).
+	 * @param entry The entry.
+	 * @param revision Its revision, or null if the entry does not exist remotely.
+	 * @see #setRemoteRevisionTTL(long)
+	 */
+	protected final void cacheRemoteRevision(Entry entry, String revision) {
+		remoteRevisions.put(entry, revision);
+	}
+
+	/** Remembers the remote revisions of all the entries of an account.
+	 * <br>This method is automatically called with the revisions attached to the entries listed by {@link Account#getRemoteEntries(Cancellable)},
+	 * {@link Account#getRemoteEntries(Cancellable, RemoteEntriesListener)} or {@link #getRemoteEntriesAsync(Account, Executor, Cancellable)}
+	 * (see {@link Entry#getInfo()}), not when {@link #getRemoteEntries(Account, Cancellable)} is called directly. It can also be called by implementations that obtain the revisions of all the entries in another way.
+	 * The following synchronizations will then not ask for these revisions again.
+	 * @param account The account.
+	 * @param revisions The revisions of all the remote entries of the account. Entries that are not in this map are considered as not existing remotely.
+	 * @see #setRemoteRevisionTTL(long)
+	 */
+	protected final void cacheRemoteRevisions(Account account, Map<Entry, String> revisions) {
+		remoteRevisions.putAll(account, revisions);
+	}
+
+	/** Sets the time during which remembered remote revisions are used.
+	 * <br>Remote revisions obtained as a side effect of another remote call (a listing, a transfer, or a call to {@link #getRemoteRevisions(Collection)})
+	 * are remembered in order to save calls to {@link #getRemoteRevision(URI)}.
+	 * <br>Please note that, before uploading a file, the synchronization always verifies the remote revision,
+	 * so a remembered revision can't result in a remote modification being overwritten.
+	 * @param timeToLive The time in ms. 0 to disable the use of remembered revisions. Default is {@link #DEFAULT_REMOTE_REVISION_TTL}.
+	 */
+	public void setRemoteRevisionTTL(long timeToLive) {
+		remoteRevisions.setTimeToLive(timeToLive);
+	}
+	
+	/** Tests whether this service overrides {@link #getRemoteRevisions(Collection)}.
+	 * @return true if the remote revisions of many URIs are obtained in a more efficient way than calling {@link #getRemoteRevision(URI)} for each URI.
+	 */
+	boolean isBulkRevisionsSupported() {
+		try {
+			return !Service.class.equals(getClass().getMethod("getRemoteRevisions", Collection.class).getDeclaringClass()); //$NON-NLS-1$
+		} catch (NoSuchMethodException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Downloads data from a cloud uri.
+	 * @param uri The entry to download.
+	 * @param out The stream where to download.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the upload is done, false if it was cancelled
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while writing to the output stream.
+	 */
+	public abstract boolean download(URI uri, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException;
+
+	/** Downloads a given revision of a cloud uri.
+	 * <br>Services that support conditional downloads should override this method in order to have the remote service reject the download
+	 * if the remote revision is not the expected one (even if the remote file is modified during the download) and
+	 * should override {@link #isConditionalDownloadSupported()} to return true.
+	 * <br>By default, this method ignores the revision and calls {@link #download(URI, OutputStream, Cancellable, Locale)}.
+	 * The caller then verifies the remote revision after the download.
+	 * @param uri The entry to download.
+	 * @param revision The expected revision.
+	 * @param out The stream where to download.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the download is done, false if it was cancelled
+	 * @throws RevisionChangedException if the remote revision is not the expected one.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while writing to the output stream.
+	 */
+	protected boolean download(URI uri, String revision, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		return download(uri, out, task, locale);
+	}
+
+	/** Downloads a given revision of a cloud uri to a channel.
+	 * <br>This is the method called to download an URI to the local cache. The channel is then a {@link FileChannel}, so services that
+	 * are able to, can transfer the data without copying it in a user space buffer (see {@link FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)}).
+	 * <br>By default, this method wraps the channel in a stream and calls {@link #download(URI, String, OutputStream, Cancellable, Locale)}.
+	 * @param uri The entry to download.
+	 * @param revision The expected revision.
+	 * @param out The channel where to download.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the download is done, false if it was cancelled
+	 * @throws RevisionChangedException if the remote revision is not the expected one (only if conditional downloads are supported).
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while writing to the channel.
+	 */
+	protected boolean download(URI uri, String revision, WritableByteChannel out, Cancellable task, Locale locale) throws JClopException, IOException {
+		return download(uri, revision, Channels.newOutputStream(out), task, locale);
+	}
+
+	/** Tests whether this service supports conditional downloads.
+	 * @return true if {@link #download(URI, String, OutputStream, Cancellable, Locale)} fails when the remote revision is not the expected one.
+	 * This implementation returns false.
+	 */
+	protected boolean isConditionalDownloadSupported() {
+		return false;
+	}
+
+	/** Sets how a download is retried when the remote file is modified during the download.
+	 * <br>The delay between two attempts doubles after each attempt.
+	 * @param maxAttempts The maximum number of attempts (default is {@link #DEFAULT_DOWNLOAD_ATTEMPTS}).
+	 * @param initialDelay The delay in ms before the second attempt (default is {@link #DEFAULT_DOWNLOAD_RETRY_DELAY}).
+	 */
+	public void setDownloadRetryPolicy(int maxAttempts, long initialDelay) {
+		if ((maxAttempts<1) || (initialDelay<0)) {
+			throw new IllegalArgumentException();
+		}
+		this.maxDownloadAttempts = maxAttempts;
+		this.downloadRetryDelay = initialDelay;
+	}
+
+	/** Tests whether this service supports chunked transfers.
+	 * <br>When chunked transfers are supported, files are transferred chunk by chunk and the transfer state is saved after each chunk.
+	 * A transfer interrupted by a crash or a cancellation restarts after its last confirmed chunk.
+	 * <br>Services that support chunked transfers should override this method to return true and override
+	 * {@link #downloadChunk(URI, String, long, int, OutputStream, Cancellable, Locale)}, {@link #startChunkedUpload(URI, long)},
+	 * {@link #getChunkedUploadOffset(String)}, {@link #uploadChunk(String, long, InputStream, int, Cancellable, Locale)}
+	 * and {@link #finishChunkedUpload(String, URI, long)}.
+	 * @return true if chunked transfers are supported. This implementation returns false.
+	 * @see #setChunkSize(int)
+	 */
+	protected boolean isChunkedTransferSupported() {
+		return false;
+	}
+
+	/** Downloads a chunk of a given revision of a cloud uri.
+	 * <br>This method is called only if {@link #isChunkedTransferSupported()} returns true.
+	 * @param uri The entry to download.
+	 * @param revision The expected revision.
+	 * @param offset The position, in the remote file, of the first byte to download.
+	 * @param length The number of bytes to download. The implementation should write less bytes only if the end of the file is reached.
+	 * @param out The stream where to download.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return The number of downloaded bytes or a negative number if the download was cancelled.
+	 * @throws RevisionChangedException if the remote revision is not the expected one.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while writing to the output stream.
+	 */
+	protected long downloadChunk(URI uri, String revision, long offset, int length, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Starts a chunked upload.
+	 * <br>This method is called only if {@link #isChunkedTransferSupported()} returns true.
+	 * @param uri The URI where to upload.
+	 * @param length The number of bytes to upload.
+	 * @return The id of the remote upload session.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 */
+	protected String startChunkedUpload(URI uri, long length) throws JClopException {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Gets the number of bytes the remote service has received in an upload session.
+	 * <br>This method is called only if {@link #isChunkedTransferSupported()} returns true.
+	 * @param session The id of the remote upload session.
+	 * @return A number of bytes or a negative number if the session does not exist anymore (for example, because it has expired).
+	 * @throws JClopException if something goes wrong while accessing the remote service.
+	 */
+	protected long getChunkedUploadOffset(String session) throws JClopException {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Uploads a chunk in an upload session.
+	 * <br>This method is called only if {@link #isChunkedTransferSupported()} returns true.
+	 * @param session The id of the remote upload session.
+	 * @param offset The position of the chunk in the uploaded file.
+	 * @param in The inputStream from which to read the uploaded bytes
+	 * @param length The number of bytes to upload
+	 * @param task The task that ask the upload or null if no cancellable task is provided. Please make sure to report the progress and cancel the upload if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return The number of bytes the remote service has received in the session, or a negative number if the upload was cancelled.
+	 * @throws JClopException if something goes wrong while accessing the remote service.
+	 * @throws IOException if something goes wrong while reading from the input stream.
+	 */
+	protected long uploadChunk(String session, long offset, InputStream in, int length, Cancellable task, Locale locale) throws JClopException, IOException {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Finishes an upload session.
+	 * <br>This method is called only if {@link #isChunkedTransferSupported()} returns true.
+	 * @param session The id of the remote upload session.
+	 * @param uri The URI where to upload.
+	 * @param length The number of uploaded bytes.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 */
+	protected void finishChunkedUpload(String session, URI uri, long length) throws JClopException {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Sets the size of the chunks of chunked transfers.
+	 * @param chunkSize The size in bytes (default is {@link #DEFAULT_CHUNK_SIZE}).
+	 * @see #isChunkedTransferSupported()
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize<=0) {
+			throw new IllegalArgumentException();
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/** Tests whether this service is able to patch a remote file.
+	 * <br>When patches are supported, the block signature of each synchronized revision is saved in the cache.
+	 * When the cache is modified, {@link #synchronize(URI, Cancellable, Locale)} uploads only the blocks that were changed since the last synchronization.
+	 * <br>Services that support patches should override this method to return true and override
+	 * {@link #uploadPatch(URI, String, Delta, Cancellable, Locale)}.
+	 * @return true if patches are supported. This implementation returns false.
+	 * @see #setDeltaBlockSize(int)
+	 */
+	protected boolean isPatchSupported() {
+		return false;
+	}
+
+	/** Patches a remote file.
+	 * <br>This method is called only if {@link #isPatchSupported()} returns true.
+	 * @param uri The URI to patch.
+	 * @param baseRevision The revision of the remote file the patch is based on.
+	 * @param delta The differences between the base revision and the new version.
+	 * @param task The task that ask the upload or null if no cancellable task is provided. Please make sure to report the progress and cancel the upload if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the patch is done, false if it was cancelled
+	 * @throws RevisionChangedException if the remote revision is not the base revision. In such a case, the remote file was modified
+	 * by another client, so the synchronization reports a conflict instead of uploading the whole file.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while reading the new version.
+	 */
+	protected boolean uploadPatch(URI uri, String baseRevision, Delta delta, Cancellable task, Locale locale) throws JClopException, IOException {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Sets the size of the blocks used to compute the differences between two versions of a file.
+	 * <br>Smaller blocks result in smaller patches, but in bigger signatures and longer computations.
+	 * @param blockSize The size in bytes (default is {@link #DEFAULT_DELTA_BLOCK_SIZE}).
+	 * @see #isPatchSupported()
+	 */
+	public void setDeltaBlockSize(int blockSize) {
+		if (blockSize<=0) {
+			throw new IllegalArgumentException();
+		}
+		this.deltaBlockSize = blockSize;
+	}
+	
+	/** Uploads data to a cloud destination uri.
+	 * @param in The inputStream from which to read to uploaded bytes
+	 * @param length The number of bytes to upload
+	 * @param uri The URI where to upload.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the upload if the task is cancelled.
+ 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the upload is done, false if it was cancelled
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while reading from the input stream.
+	 */
+	public abstract boolean upload(InputStream in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException;
+
+	/** Uploads data read from a channel to a cloud destination uri.
+	 * <br>This is the method called to upload the local cache. The channel is then a {@link FileChannel}, so services that
+	 * are able to, can transfer the data without copying it in a user space buffer (see {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}).
+	 * <br>By default, this method wraps the channel in a stream and calls {@link #upload(InputStream, long, URI, Cancellable, Locale)}.
+	 * @param in The channel from which to read to uploaded bytes
+	 * @param length The number of bytes to upload
+	 * @param uri The URI where to upload.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the upload if the task is cancelled.
+ 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the upload is done, false if it was cancelled
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while reading from the channel.
+	 */
+	protected boolean upload(ReadableByteChannel in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		return upload(Channels.newInputStream(in), length, uri, task, locale);
+	}
+	
+	/** Downloads data from a cloud uri to a cache file.
+	 * Whatever is the synchronization state, this method forces the remote file to replace current cached file.
+	 * @param uri The entry to download.
+	 * @param task The task that ask the download or null if no cancellable task is provided. Please make sure to report the progress and cancel the download if the task is cancelled.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the upload is done, false if it was cancelled
+	 * @throws RevisionChangedException if the remote file was modified during each download attempt.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while writing to the local cache.
+	 * @see #setDownloadRetryPolicy(int, long)
+	 */
+	public final boolean download(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		if (local) {
+			return true;
+		}
+		EntryLocks.Lock lock = lock(uri);
+		try {
+			RemoteRevisionCache.Revision revision = remoteRevisions.get(getEntry(uri));
+			return downloadToCache(uri, revision==null?fetchRemoteRevision(uri):revision.getValue(), task, locale);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private boolean downloadToCache(URI uri, String expectedRevision, Cancellable task, Locale locale) throws JClopException, IOException {
+		long start = startOperation();
+		boolean done = false;
+		try {
+			done = doDownloadToCache(uri, expectedRevision, task, locale);
+			return done;
+		} finally {
+			endOperation(ServiceMetrics.Operation.DOWNLOAD, start, done);
+		}
+	}
+
+	private boolean doDownloadToCache(URI uri, String expectedRevision, Cancellable task, Locale locale) throws JClopException, IOException {
+		File file = getLocalFile(uri);
+		file.getParentFile().mkdirs();
+		boolean chunked = isChunkedTransferSupported();
+		// A chunked download always checks the revision of each chunk
+		boolean conditional = chunked || isConditionalDownloadSupported();
+		String revision = expectedRevision;
+		// We do not download directly to the target file, to prevent file from being corrupted if the copy fails
+		File tmpFile = chunked ? new File(file.getParent(), ChunkedTransfer.PARTIAL_DOWNLOAD) : new File(file.getParent(), file.getName()+".tmp"); //$NON-NLS-1$
+		boolean done = false;
+		long delay = downloadRetryDelay;
+		for (int attempt = 1; ; attempt++) {
+			// While the downloaded revision is not the last one on the server (maybe the remote file is updated while we download it)
+			String downloadedRevision = revision;
+			boolean rejected = false;
+			done = false;
+			try {
+				if (chunked) {
+					done = new ChunkedTransfer(this, chunkSize).download(uri, downloadedRevision, file.getParentFile(), task, locale);
+				} else {
+					FileChannel out = new FileOutputStream(tmpFile).getChannel();
+					try {
+						done = download(uri, downloadedRevision, out, task, locale);
+					} finally {
+						out.close();
+					}
+				}
+			} catch (RevisionChangedException e) {
+				rejected = true;
+			}
+			if (!done && !rejected) {
+				// Download was cancelled
+				break;
+			}
+			if (rejected) {
+				revision = fetchRemoteRevision(uri);
+			} else {
+				// A conditional download always gets the expected revision
+				revision = conditional ? downloadedRevision : fetchRemoteRevision(uri);
+				if (NullUtils.areEquals(revision, downloadedRevision)) {
+					break;
+				}
+			}
+			if (attempt>=maxDownloadAttempts) {
+				tmpFile.delete();
+				throw new RevisionChangedException();
+			}
+			ServiceMetrics m = metrics;
+			if (m!=null) {
+				m.downloadRetried(uri, attempt);
+			}
+			// Wait a little, the remote file is maybe being modified
+			done = sleep(delay, task);
+			delay = 2*delay;
+			if (!done) {
+				break;
+			}
+		}
+		if (done) {
+			file.delete();
+			tmpFile.renameTo(file);
+			ServiceMetrics m = metrics;
+			if (m!=null) {
+				m.bytesTransfered(ServiceMetrics.Operation.DOWNLOAD, file.length());
+			}
+			setLocalRevision(uri, revision);
+			remoteRevisions.put(getEntry(uri), revision);
+			saveSignature(uri, revision);
+		} else if (!chunked) {
+			// The chunks of a cancelled chunked download are kept in order to resume the download later
+			tmpFile.delete();
+		}
+		return done;
+	}
+	
+	/** Waits before retrying a task.
+	 * @param delay The delay in ms.
+	 * @param task The task or null.
+	 * @return false if the task was cancelled (or the current thread interrupted) during the wait.
+	 */
+	private static boolean sleep(long delay, Cancellable task) {
+		long end = System.currentTimeMillis()+delay;
+		try {
+			for (long remaining = delay; remaining>0; remaining = end-System.currentTimeMillis()) {
+				if ((task!=null) && task.isCancelled()) {
+					return false;
+				}
+				Thread.sleep(Math.min(remaining, 100));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return (task==null) || !task.isCancelled();
+	}
+
+	/** Uploads an URI from the cache to the remote service.
+	 * Whatever is the synchronization state, this method forces the cached file to replace current remote file.
+	 * <br>The whole file is uploaded, even if patches are supported (see {@link #isPatchSupported()}).
+	 * @param uri The URI to upload
+	 * @param task A cancellable to report the progress or cancel the task.
+ 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the uri was successfully uploaded
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while reading from the local cache.
+	 */
+	public final boolean upload(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		return upload(uri, false, task, locale);
+	}
+
+	/** Uploads an URI from the cache to the remote service.
+	 * @param uri The URI to upload
+	 * @param patch true to upload only the differences with the last synchronized revision, if possible.
+	 * @param task A cancellable to report the progress or cancel the task.
+ 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return true if the uri was successfully uploaded
+	 * @throws RevisionChangedException if a patch was refused because the remote file is not the last synchronized revision anymore.
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while reading from the local cache.
+	 */
+	private boolean upload(URI uri, boolean patch, Cancellable task, Locale locale) throws JClopException, IOException {
+		if (local) {
+			return true;
+		}
+		EntryLocks.Lock lock = lock(uri);
+		long start = startOperation();
+		boolean done = false;
+		try {
+			done = doUpload(uri, patch, task, locale);
+			return done;
+		} finally {
+			endOperation(ServiceMetrics.Operation.UPLOAD, start, done);
+			lock.release();
+		}
+	}
+
+	private boolean doUpload(URI uri, boolean patch, Cancellable task, Locale locale) throws JClopException, IOException {
+		File file = getLocalFile(uri);
+		long length = file.length();
+		boolean done = false;
+		Entry entry = getEntry(uri);
+		// Forget the current remote revision, the upload implementation may set the new one
+		remoteRevisions.remove(entry);
+		Delta delta = patch ? getDelta(uri, file) : null;
+		if (delta!=null) {
+			// If the remote file was modified by another client, the exception is thrown to the caller: uploading the whole file would overwrite these changes
+			done = uploadPatch(uri, getLocalRevision(uri), delta, task, locale);
+		}
+		if (delta!=null) {
+			// Patch was uploaded
+		} else if (isChunkedTransferSupported()) {
+			done = new ChunkedTransfer(this, chunkSize).upload(uri, file, task, locale);
+		} else {
+			FileChannel channel = new FileInputStream(file).getChannel();
+			try {
+				done = upload(channel, length, uri, task, locale);
+			} finally {
+				channel.close();
+			}
+		}
+		if (done) {
+			ServiceMetrics m = metrics;
+			if (m!=null) {
+				m.bytesTransfered(ServiceMetrics.Operation.UPLOAD, delta!=null ? delta.getDataLength() : length);
+			}
+			RemoteRevisionCache.Revision revision = remoteRevisions.get(entry);
+			String newRevision = revision==null ? fetchRemoteRevision(uri) : revision.getValue();
+			setLocalRevision(uri, newRevision);
+			remoteRevisions.put(entry, newRevision);
+			saveSignature(uri, newRevision);
+		}
+		return done;
+	}
+
+	/** Gets the differences between the local cache of an URI and its last synchronized revision.
+	 * @param uri The URI
+	 * @param file The local cache of the URI
+	 * @return A delta, or null if patches are not supported, the signature of the last synchronized revision is not available,
+	 * or too many things have changed.
+	 * @throws IOException if something goes wrong while reading the cache
+	 */
+	private Delta getDelta(URI uri, File file) throws IOException {
+		if (!isPatchSupported()) {
+			return null;
+		}
+		String localRevision = getLocalRevision(uri);
+		BlockSignature signature = BlockSignature.read(new File(file.getParent(), SIGNATURE_FILE));
+		if ((localRevision==null) || (signature==null) || !localRevision.equals(signature.getRevision())) {
+			return null;
+		}
+		Delta delta = Delta.compute(signature, file);
+		// If more than the half of the file was changed, it's not worth patching
+		return delta.getDataLength()>delta.getLength()/2 ? null : delta;
+	}
+
+	/** Saves the block signature of a synchronized revision, in order to be able to upload only the differences later.
+	 * @param uri The URI
+	 * @param revision Its revision
+	 */
+	private void saveSignature(URI uri, String revision) {
+		if (!isPatchSupported()) {
+			return;
+		}
+		File file = getLocalFile(uri);
+		File signatureFile = new File(file.getParent(), SIGNATURE_FILE);
+		try {
+			BlockSignature.compute(file, revision, deltaBlockSize).write(signatureFile);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to save the signature of "+file, e);
+			signatureFile.delete();
+		}
+	}
+	
+	/** Synchronizes local cache and remote resource.
+	 * <br>If the remote revision was recently obtained (see {@link #setRemoteRevisionTTL(long)}), it is not asked again,
+	 * unless the local cache has to be uploaded.
+	 * @param uri The remote URI
+	 * @param task A cancellable to report the progress or cancel the task.
+ 	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return The synchronization state
+	 * @throws FileNotFoundException if neither the remote resource nor its cache file does exist 
+	 * @throws JClopException if something goes wrong while accessing the URI.
+	 * @throws IOException if something goes wrong while accessing the local cache.
+	 */
+	public SynchronizationState synchronize(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		long start = startOperation();
+		SynchronizationState state = null;
+		try {
+			state = doSynchronize(uri, task, locale);
+			return state;
+		} finally {
+			endOperation(ServiceMetrics.Operation.SYNCHRONIZE, start, state!=null);
+			ServiceMetrics m = metrics;
+			if ((m!=null) && (state!=null)) {
+				m.synchronizationDone(uri, state);
+			}
+		}
+	}
+
+	private SynchronizationState doSynchronize(URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		if (local) {
+			return synchronize(uri, fetchRemoteRevision(uri), true, task, locale);
+		}
+		EntryLocks.Lock lock = lock(uri);
+		try {
+			RemoteRevisionCache.Revision revision = remoteRevisions.get(getEntry(uri));
+			if (revision!=null) {
+				SynchronizationState state = synchronize(uri, revision.getValue(), false, task, locale);
+				if (state!=null) {
+					return state;
+				}
+			}
+			return synchronize(uri, fetchRemoteRevision(uri), true, task, locale);
+		} finally {
+			lock.release();
+		}
+	}
+
+	/** Sets whether the operations on an URI are also locked against other processes.
+	 * <br>The download, upload and synchronization of an URI are always serialized between the threads of this process.
+	 * If several processes share the same cache root, this method can be used to lock the URI's cache folder with a file lock
+	 * during these operations (see {@link java.nio.channels.FileChannel#lock()}). You should probably also call {@link #setCacheMonitored(boolean)}.
+	 * <br>By default, this cross process locking is disabled.
+	 * @param crossProcess true to enable cross process locking.
+	 */
+	public void setCrossProcessLocking(boolean crossProcess) {
+		locks.setCrossProcess(crossProcess);
+	}
+
+	private EntryLocks.Lock lock(URI uri) throws IOException {
+		Entry entry = getEntry(uri);
+		return locks.lock(entry, getCacheFolder(entry));
+	}
+	
+	/** Synchronizes local cache and remote resource.
+	 * @param uri The remote URI
+	 * @param remoteRevision The remote revision
+	 * @param verified true if the remote revision was just obtained from the remote service, false if it was remembered.
+	 * @param task A cancellable to report the progress or cancel the task.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return The synchronization state, or null if the synchronization requires a verified remote revision.
+	 */
+	private SynchronizationState synchronize(URI uri, String remoteRevision, boolean verified, Cancellable task, Locale locale) throws JClopException, IOException {
+		String localRevision = getLocalRevision(uri);
+//System.out.println("remote rev: "+remoteRevision+", local rev:"+localRevision);
+		File file = getLocalFile(uri);
+		if (remoteRevision==null) {
+			// If remote uri doesn't exist
+			if (!file.exists()) {
+				// The local cache doesn't exist
+				throw new FileNotFoundException();
+			}
+			if (localRevision==null) {
+				// The local cache was never synchronized -> Upload the cache to server
+				if (!verified) {
+					return null;
+				}
+				upload(uri, true, task, locale); 
+				return SynchronizationState.SYNCHRONIZED;
+			} else {
+				// Remote was deleted
+				return SynchronizationState.REMOTE_DELETED;
+			}
+		} else {
+			// The remote uri exists
+			if (remoteRevision.equals(localRevision)) {
+				// Cache and remote have the same origin 
+				if (isSynchronized(uri) || restoreIfUnchanged(uri, localRevision)) {
+					// The cache and the remote are the same
+					return SynchronizationState.SYNCHRONIZED;
+				} else {
+					// cache was changed but not yet uploaded
+					if (!verified) {
+						return null;
+					}
+					try {
+						upload(uri, true, task, locale);
+					} catch (RevisionChangedException e) {
+						// The remote file was modified after its revision was fetched, its changes should not be overwritten.
+						// Synchronize again with its new revision, which reports the conflict
+						remoteRevisions.remove(getEntry(uri));
+						return synchronize(uri, fetchRemoteRevision(uri), true, task, locale);
+					}
+					return SynchronizationState.SYNCHRONIZED;
+				}
+			} else {
+				// Cache and remote have not the same origin
+				if (!file.exists()) { // The local cache doesn't exist
+					downloadToCache(uri, remoteRevision, task, locale);
+					return SynchronizationState.SYNCHRONIZED;
+				} else {
+					// The local cache exists
+					if (isSynchronized(uri) || ((localRevision!=null) && restoreIfUnchanged(uri, localRevision))) {
+						// The local cache was already synchronized (or was rewritten without any change)
+						// This means the cloud has been modified after the cache was synchronized
+						downloadToCache(uri, remoteRevision, task, locale);
+						return SynchronizationState.SYNCHRONIZED;
+					} else {
+						// The local cache was not synchronized with the remote uri
+						return SynchronizationState.CONFLICT;
+					}
+				}
+			}
+		}
+	}
+
+	/** Synchronizes all the locally cached entries of an account.
+	 * @param account The account
+	 * @param parallelism The maximum number of entries that are synchronized at the same time.
+	 * @param task A cancellable to report the progress (the number of synchronized entries) or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @param listener A listener that will receive the state of each entry, or null.
+	 * @return The synchronization states of the successfully synchronized entries' URIs.
+	 * @throws InterruptedException if the current thread is interrupted while waiting for the synchronizations.
+	 * @see #synchronizeAll(Collection, Executor, Cancellable, Locale, SynchronizationListener)
+	 */
+	public Map<URI, SynchronizationState> synchronizeAll(Account account, int parallelism, Cancellable task, Locale locale, SynchronizationListener listener) throws InterruptedException {
+		Collection<URI> uris = new ArrayList<URI>();
+		for (Entry entry : account.getLocalEntries()) {
+			uris.add(getURI(entry));
+		}
+		return synchronizeAll(uris, parallelism, task, locale, listener);
+	}
+
+	/** Synchronizes a set of URIs using a dedicated thread pool.
+	 * @param uris The URIs to synchronize
+	 * @param parallelism The maximum number of URIs that are synchronized at the same time.
+	 * @param task A cancellable to report the progress (the number of synchronized URIs) or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @param listener A listener that will receive the state of each URI, or null.
+	 * @return The synchronization states of the successfully synchronized URIs.
+	 * @throws InterruptedException if the current thread is interrupted while waiting for the synchronizations.
+	 * @see #synchronizeAll(Collection, Executor, Cancellable, Locale, SynchronizationListener)
+	 */
+	public Map<URI, SynchronizationState> synchronizeAll(Collection<URI> uris, int parallelism, Cancellable task, Locale locale, SynchronizationListener listener) throws InterruptedException {
+		if (parallelism<=0) {
+			throw new IllegalArgumentException();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, uris.size())));
+		try {
+			return synchronizeAll(uris, executor, task, locale, listener);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/** Synchronizes a set of URIs concurrently.
+	 * <br>Each URI is synchronized by {@link #synchronize(URI, Cancellable, Locale)} in a task submitted to an executor.
+	 * The number of URIs synchronized at the same time is bounded by the executor.
+	 * <br>This method returns when all the URIs are processed. The listener is called by the current thread.
+	 * <br>The progress reported to the task is the number of processed URIs. If the task is cancelled, the synchronizations
+	 * in progress are cancelled and the others are not started. The URIs that were not synchronized because of the
+	 * cancellation are neither reported to the listener, nor part of the returned map. 
+	 * @param uris The URIs to synchronize
+	 * @param executor The executor that will run the synchronizations.
+	 * @param task A cancellable to report the progress (the number of synchronized URIs) or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @param listener A listener that will receive the state of each URI, or the exception that occurred while synchronizing it. It can be null.
+	 * @return The synchronization states of the successfully synchronized URIs.
+	 * @throws InterruptedException if the current thread is interrupted while waiting for the synchronizations.
+	 * In such a case, the synchronizations in progress are cancelled.
+	 */
+	public Map<URI, SynchronizationState> synchronizeAll(Collection<URI> uris, Executor executor, Cancellable task, Locale locale, SynchronizationListener listener) throws InterruptedException {
+		return new BatchSynchronizer(this, locale, listener).synchronize(uris, executor, task);
+	}
+
+	/** Downloads the remote URI to the local cache asynchronously.
+	 * <br>Cancelling the returned future cancels the download.
+	 * <br>A listener can be notified of its completion (see {@link AsyncOperation#addListener(Runnable, Executor)}).
+	 * @param uri The URI
+	 * @param executor The executor that will perform the download.
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return A future whose result is the result of {@link #download(URI, Cancellable, Locale)}.
+	 */
+	public AsyncOperation<Boolean> downloadAsync(final URI uri, Executor executor, Cancellable task, final Locale locale) {
+		return submit(executor, task, new AsyncOperation.Operation<Boolean>() {
+			@Override
+			protected Boolean call(Cancellable task) throws Exception {
+				return download(uri, task, locale);
+			}
+		});
+	}
+
+	/** Uploads the local cache to the remote URI asynchronously.
+	 * <br>Cancelling the returned future cancels the upload.
+	 * <br>A listener can be notified of its completion (see {@link AsyncOperation#addListener(Runnable, Executor)}).
+	 * @param uri The URI
+	 * @param executor The executor that will perform the upload.
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return A future whose result is the result of {@link #upload(URI, Cancellable, Locale)}.
+	 */
+	public AsyncOperation<Boolean> uploadAsync(final URI uri, Executor executor, Cancellable task, final Locale locale) {
+		return submit(executor, task, new AsyncOperation.Operation<Boolean>() {
+			@Override
+			protected Boolean call(Cancellable task) throws Exception {
+				return upload(uri, task, locale);
+			}
+		});
+	}
+
+	/** Synchronizes the local cache and the remote resource asynchronously.
+	 * <br>Cancelling the returned future cancels the synchronization.
+	 * <br>A listener can be notified of its completion (see {@link AsyncOperation#addListener(Runnable, Executor)}).
+	 * @param uri The URI
+	 * @param executor The executor that will perform the synchronization.
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @param locale The locale that will be used to set the name of task phases. This argument can be null if task is null too.
+	 * @return A future whose result is the result of {@link #synchronize(URI, Cancellable, Locale)}.
+	 */
+	public AsyncOperation<SynchronizationState> synchronizeAsync(final URI uri, Executor executor, Cancellable task, final Locale locale) {
+		return submit(executor, task, new AsyncOperation.Operation<SynchronizationState>() {
+			@Override
+			protected SynchronizationState call(Cancellable task) throws Exception {
+				return synchronize(uri, task, locale);
+			}
+		});
+	}
+
+	/** Gets the remote entries of an account asynchronously.
+	 * <br>As with {@link Account#getRemoteEntries(Cancellable)}, the revisions of the listed entries are remembered.
+	 * <br>Cancelling the returned future cancels the listing.
+	 * <br>A listener can be notified of its completion (see {@link AsyncOperation#addListener(Runnable, Executor)}).
+	 * @param account The account
+	 * @param executor The executor that will perform the listing.
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @return A future whose result is the result of {@link #getRemoteEntries(Account, Cancellable)}.
+	 */
+	public AsyncOperation<Collection<Entry>> getRemoteEntriesAsync(final Account account, Executor executor, Cancellable task) {
+		return submit(executor, task, new AsyncOperation.Operation<Collection<Entry>>() {
+			@Override
+			protected Collection<Entry> call(Cancellable task) throws Exception {
+				return listRemoteEntries(account, task);
+			}
+		});
+	}
+
+	private static <V> AsyncOperation<V> submit(Executor executor, Cancellable task, AsyncOperation.Operation<V> operation) {
+		AsyncOperation<V> future = new AsyncOperation<V>(operation, task);
+		executor.execute(future);
+		return future;
+	}
+
+	public String getMessage(String key, Locale locale) {
+		return MessagePack.DEFAULT.getString(key, locale);
+	}
+
+	/** Sets the listener that collects metrics about the operations of this service.
+	 * <br>When a listener is set, the duration of every remote call and cache operation is measured, the number of bytes transfered,
+	 * the download retries and the synchronization states are reported.
+	 * <br>By default, no metrics are collected.
+	 * @param metrics The metrics listener, or null to stop collecting metrics.
+	 * @see ServiceStatistics
+	 */
+	public void setMetrics(ServiceMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/** Gets the listener that collects metrics about the operations of this service.
+	 * @return a metrics listener or null if no metrics are collected.
+	 */
+	public ServiceMetrics getMetrics() {
+		return metrics;
+	}
+
+	/** Starts measuring an operation.
+	 * @return The start time of the operation, or 0 if no metrics are collected.
+	 */
+	long startOperation() {
+		return metrics==null ? 0 : System.nanoTime();
+	}
+
+	/** Reports the end of an operation to the metrics listener.
+	 * @param operation The operation
+	 * @param start The value returned by {@link #startOperation()} when the operation started.
+	 * @param succeeded true if the operation succeeded.
+	 */
+	void endOperation(ServiceMetrics.Operation operation, long start, boolean succeeded) {
+		ServiceMetrics m = metrics;
+		if ((m!=null) && (start!=0)) {
+			m.operationDone(operation, System.nanoTime()-start, succeeded);
+		}
+	}
+
+	/** Gets the remote entries of an account and measures the call.
+	 * @param account The account
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @return The result of {@link #getRemoteEntries(Account, Cancellable)}
+	 * @throws JClopException if something goes wrong
+	 */
+	Collection<Entry> listRemoteEntries(Account account, Cancellable task) throws JClopException {
+		long start = startOperation();
+		boolean done = false;
+		try {
+			Collection<Entry> result = getRemoteEntries(account, task);
+			done = (task==null) || !task.isCancelled();
+			cacheListedRevisions(account, result, done);
+			return result;
+		} finally {
+			endOperation(ServiceMetrics.Operation.LIST, start, done);
+		}
+	}
+
+	/** Gets the remote entries of an account, page by page, and measures the call.
+	 * @param account The account
+	 * @param task A cancellable to report the progress or cancel the task, or null.
+	 * @param listener The listener that receives the pages.
+	 * @throws JClopException if something goes wrong
+	 * @see #getRemoteEntries(Account, Cancellable, RemoteEntriesListener)
+	 */
+	void listRemoteEntries(Account account, Cancellable task, final RemoteEntriesListener listener) throws JClopException {
+		long start = startOperation();
+		boolean done = false;
+		try {
+			final Collection<Entry> listed = new ArrayList<Entry>();
+			getRemoteEntries(account, task, new RemoteEntriesListener() {
+				@Override
+				public void entriesFound(Collection<Entry> entries) {
+					listed.addAll(entries);
+					listener.entriesFound(entries);
+				}
+			});
+			done = (task==null) || !task.isCancelled();
+			cacheListedRevisions(account, listed, done);
+		} finally {
+			endOperation(ServiceMetrics.Operation.LIST, start, done);
+		}
+	}
+
+	/** Remembers the remote revisions attached to listed entries (see {@link Entry#getInfo()}).
+	 * @param account The listed account
+	 * @param entries The listed entries
+	 * @param complete true if the listing is complete. If so, and all the entries have a known revision, the entries that
+	 * are not listed are considered as not existing remotely.
+	 */
+	private void cacheListedRevisions(Account account, Collection<Entry> entries, boolean complete) {
+		Map<Entry, String> revisions = new HashMap<Entry, String>();
+		for (Entry entry : entries) {
+			if ((entry.getInfo()!=null) && (entry.getInfo().getRevision()!=null)) {
+				revisions.put(entry, entry.getInfo().getRevision());
+			}
+		}
+		if (complete && (revisions.size()==entries.size())) {
+			cacheRemoteRevisions(account, revisions);
+		} else {
+			for (Map.Entry<Entry, String> revision : revisions.entrySet()) {
+				cacheRemoteRevision(revision.getKey(), revision.getValue());
+			}
+		}
+	}
+
+	/** Gets the remote revision of an URI and measures the call.
+	 * @param uri The URI
+	 * @return The result of {@link #getRemoteRevision(URI)}
+	 * @throws JClopException if something goes wrong
+	 */
+	private String fetchRemoteRevision(URI uri) throws JClopException {
+		long start = startOperation();
+		boolean done = false;
+		try {
+			String revision = getRemoteRevision(uri);
+			done = true;
+			return revision;
+		} finally {
+			endOperation(ServiceMetrics.Operation.REMOTE_REVISION, start, done);
+		}
+	}
+
+	/** Deletes the local cache of an uri.
+	 * <br>If the local cache doesn't exists, does nothing.
+	 * @param uri
+	 */
+	public void deleteLocal(URI uri) {
+		if (local) {
+			FileUtils.deleteDirectory(getLocalFile(uri).getParentFile());
+			return;
+		}
+		Entry entry = getEntry(uri);
+		EntryLocks.Lock lock = locks.lockLocally(entry);
+		long start = startOperation();
+		try {
+			FileUtils.deleteDirectory(getLocalFile(uri).getParentFile());
+			cacheIndex.remove(entry);
+		} finally {
+			endOperation(ServiceMetrics.Operation.CACHE_DELETE, start, true);
+			lock.release();
+		}
+	}
+
+	/** Gets an account by its id.
+	 * @param id The account id
+	 * @return An account or null if the account is unknown
+	 */
+	public Account getAccount(String id) {
+		if (id==null) {
+			return null;
+		}
+		Account account = accounts.get(id);
+		if ((account==null) && pendingAccounts.containsKey(id)) {
+			account = loadAccount(id);
+		}
+		return account;
+	}
+}
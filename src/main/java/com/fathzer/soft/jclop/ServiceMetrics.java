@@ -0,0 +1,59 @@
+package com.fathzer.soft.jclop;
+
+import java.net.URI;
+
+/** A listener of the operations of a service, that allows to collect metrics about them.
+ * <br>Unlike {@link SynchronizationListener}, the methods of this interface are called by the threads that perform the operations,
+ * concurrently, so an implementation has to be thread safe. They are called on the hot paths of the service, so they should return quickly.
+ * <br>{@link ServiceStatistics} is an implementation that aggregates counters, timers and histograms, and can be exposed through JMX.
+ * @see Service#setMetrics(ServiceMetrics)
+ */
+public interface ServiceMetrics {
+	/** The measured operations. */
+	public enum Operation {
+		/** Listing the remote entries of an account. */
+		LIST,
+		/** Getting the remote revision of an URI. */
+		REMOTE_REVISION,
+		/** Downloading an URI to the local cache (including the retries). */
+		DOWNLOAD,
+		/** Uploading the local cache of an URI. */
+		UPLOAD,
+		/** Synchronizing an URI (including the remote revision check, and the download or upload, if any). */
+		SYNCHRONIZE,
+		/** Getting the local cache file of an URI. */
+		CACHE_LOOKUP,
+		/** Scanning the cache folder of an URI (when the cache state of the URI is not known). */
+		CACHE_SCAN,
+		/** Setting the local revision of an URI. */
+		CACHE_UPDATE,
+		/** Deleting the local cache of an URI. */
+		CACHE_DELETE
+	}
+
+	/** This method is called when an operation ends.
+	 * @param operation The operation
+	 * @param duration The duration of the operation in nanoseconds
+	 * @param succeeded false if the operation ended with an exception, or was cancelled.
+	 */
+	public void operationDone(Operation operation, long duration, boolean succeeded);
+
+	/** This method is called when data was transfered.
+	 * @param operation The operation ({@link Operation#DOWNLOAD} or {@link Operation#UPLOAD})
+	 * @param bytes The number of bytes transfered (for an upload of the differences only, the size of the differences)
+	 */
+	public void bytesTransfered(Operation operation, long bytes);
+
+	/** This method is called when a download has to be retried because the remote file was modified during the download.
+	 * @param uri The downloaded URI
+	 * @param attempt The number of the attempt that failed (1 for the first one)
+	 * @see Service#setDownloadRetryPolicy(int, long)
+	 */
+	public void downloadRetried(URI uri, int attempt);
+
+	/** This method is called when an URI has been synchronized.
+	 * @param uri The URI
+	 * @param state The synchronization state
+	 */
+	public void synchronizationDone(URI uri, SynchronizationState state);
+}
@@ -0,0 +1,256 @@
+package com.fathzer.soft.jclop;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** A {@link ServiceMetrics} that aggregates counters, timers and histograms in memory.
+ * <br>For each operation, it records the number of calls, the number of failures, the total and maximum durations, and the distribution
+ * of the durations. The histogram has {@link #BUCKETS} buckets: bucket 0 counts the operations shorter than 1&micro;s, bucket i
+ * (i&gt;0) counts the operations that lasted from 2<sup>i-1</sup> to 2<sup>i</sup>&micro;s, the last bucket counts all longer operations.
+ * <br>The statistics can be exposed through JMX (see {@link #register(String)}).
+ * <br>Example:<pre>
+ * ServiceStatistics statistics = new ServiceStatistics();
+ * service.setMetrics(statistics);
+ * statistics.register(service.getScheme());
+ * </pre>
+ */
+public class ServiceStatistics implements ServiceMetrics, ServiceStatisticsMBean {
+	/** The number of buckets of the histograms. */
+	public static final int BUCKETS = 32;
+	private static final int OPERATIONS = Operation.values().length;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final AtomicLongArray counts;
+	private final AtomicLongArray failures;
+	private final AtomicLongArray totalTimes;
+	private final AtomicLongArray maxTimes;
+	private final AtomicLongArray histograms;
+	private final AtomicLongArray bytes;
+	private final AtomicLongArray states;
+	private final AtomicLong retries;
+	private ObjectName name;
+
+	/** Constructor. */
+	public ServiceStatistics() {
+		this.counts = new AtomicLongArray(OPERATIONS);
+		this.failures = new AtomicLongArray(OPERATIONS);
+		this.totalTimes = new AtomicLongArray(OPERATIONS);
+		this.maxTimes = new AtomicLongArray(OPERATIONS);
+		this.histograms = new AtomicLongArray(OPERATIONS*BUCKETS);
+		this.bytes = new AtomicLongArray(OPERATIONS);
+		this.states = new AtomicLongArray(SynchronizationState.values().length);
+		this.retries = new AtomicLong();
+	}
+
+	@Override
+	public void operationDone(Operation operation, long duration, boolean succeeded) {
+		int index = operation.ordinal();
+		counts.incrementAndGet(index);
+		if (!succeeded) {
+			failures.incrementAndGet(index);
+		}
+		totalTimes.addAndGet(index, duration);
+		long max = maxTimes.get(index);
+		while ((duration>max) && !maxTimes.compareAndSet(index, max, duration)) {
+			max = maxTimes.get(index);
+		}
+		histograms.incrementAndGet(index*BUCKETS+getBucket(duration));
+	}
+
+	private static int getBucket(long duration) {
+		long micros = duration/1000;
+		return Math.min(BUCKETS-1, Long.SIZE-Long.numberOfLeadingZeros(micros));
+	}
+
+	@Override
+	public void bytesTransfered(Operation operation, long count) {
+		bytes.addAndGet(operation.ordinal(), count);
+	}
+
+	@Override
+	public void downloadRetried(URI uri, int attempt) {
+		retries.incrementAndGet();
+	}
+
+	@Override
+	public void synchronizationDone(URI uri, SynchronizationState state) {
+		states.incrementAndGet(state.ordinal());
+	}
+
+	/** Gets the number of times an operation ended.
+	 * @param operation The operation
+	 * @return a number of operations
+	 */
+	public long getCount(Operation operation) {
+		return counts.get(operation.ordinal());
+	}
+
+	/** Gets the number of times an operation failed or was cancelled.
+	 * @param operation The operation
+	 * @return a number of operations
+	 */
+	public long getFailures(Operation operation) {
+		return failures.get(operation.ordinal());
+	}
+
+	/** Gets the total duration of an operation.
+	 * @param operation The operation
+	 * @return a duration in ns
+	 */
+	public long getTotalTime(Operation operation) {
+		return totalTimes.get(operation.ordinal());
+	}
+
+	/** Gets the maximum duration of an operation.
+	 * @param operation The operation
+	 * @return a duration in ns
+	 */
+	public long getMaxTime(Operation operation) {
+		return maxTimes.get(operation.ordinal());
+	}
+
+	/** Gets the distribution of the durations of an operation.
+	 * @param operation The operation
+	 * @return an array of {@link #BUCKETS} counts (see the class description for the buckets bounds)
+	 */
+	public long[] getHistogram(Operation operation) {
+		long[] result = new long[BUCKETS];
+		int offset = operation.ordinal()*BUCKETS;
+		for (int i = 0; i < BUCKETS; i++) {
+			result[i] = histograms.get(offset+i);
+		}
+		return result;
+	}
+
+	/** Gets the number of bytes transfered by an operation.
+	 * @param operation The operation
+	 * @return a number of bytes
+	 */
+	public long getBytes(Operation operation) {
+		return bytes.get(operation.ordinal());
+	}
+
+	/** Gets the number of synchronizations that ended with a state.
+	 * @param state The state
+	 * @return a number of synchronizations
+	 */
+	public long getCount(SynchronizationState state) {
+		return states.get(state.ordinal());
+	}
+
+	@Override
+	public String[] getOperations() {
+		Operation[] operations = Operation.values();
+		String[] result = new String[operations.length];
+		for (int i = 0; i < operations.length; i++) {
+			result[i] = operations[i].name();
+		}
+		return result;
+	}
+
+	@Override
+	public long getCount(String operation) {
+		return getCount(Operation.valueOf(operation));
+	}
+
+	@Override
+	public long getFailures(String operation) {
+		return getFailures(Operation.valueOf(operation));
+	}
+
+	@Override
+	public double getAverageTimeMillis(String operation) {
+		Operation op = Operation.valueOf(operation);
+		// Read the total first, so that the average is never overestimated by a concurrent update
+		long total = getTotalTime(op);
+		long count = getCount(op);
+		return count==0 ? 0 : total/NANOS_PER_MILLI/count;
+	}
+
+	@Override
+	public double getMaxTimeMillis(String operation) {
+		return getMaxTime(Operation.valueOf(operation))/NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long[] getHistogram(String operation) {
+		return getHistogram(Operation.valueOf(operation));
+	}
+
+	@Override
+	public long getBytesDownloaded() {
+		return getBytes(Operation.DOWNLOAD);
+	}
+
+	@Override
+	public long getBytesUploaded() {
+		return getBytes(Operation.UPLOAD);
+	}
+
+	@Override
+	public long getDownloadRetries() {
+		return retries.get();
+	}
+
+	@Override
+	public long getSynchronized() {
+		return getCount(SynchronizationState.SYNCHRONIZED);
+	}
+
+	@Override
+	public long getConflicts() {
+		return getCount(SynchronizationState.CONFLICT);
+	}
+
+	@Override
+	public long getRemoteDeleted() {
+		return getCount(SynchronizationState.REMOTE_DELETED);
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < OPERATIONS; i++) {
+			counts.set(i, 0);
+			failures.set(i, 0);
+			totalTimes.set(i, 0);
+			maxTimes.set(i, 0);
+			bytes.set(i, 0);
+		}
+		for (int i = 0; i < histograms.length(); i++) {
+			histograms.set(i, 0);
+		}
+		for (int i = 0; i < states.length(); i++) {
+			states.set(i, 0);
+		}
+		retries.set(0);
+	}
+
+	/** Registers these statistics in the platform MBean server.
+	 * <br>The object name is <code>com.fathzer.soft.jclop:type=ServiceStatistics,name=<i>name</i></code>.
+	 * If these statistics are already registered, they are unregistered first.
+	 * @param name The name of the statistics (typically, the scheme of the service)
+	 * @throws JMException if the registration fails (for instance, if other statistics are registered with the same name)
+	 */
+	public synchronized void register(String name) throws JMException {
+		unregister();
+		ObjectName objectName = new ObjectName("com.fathzer.soft.jclop:type=ServiceStatistics,name="+ObjectName.quote(name)); //$NON-NLS-1$
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.name = objectName;
+	}
+
+	/** Unregisters these statistics from the platform MBean server.
+	 * <br>This method does nothing if the statistics are not registered.
+	 * @throws JMException if the unregistration fails
+	 */
+	public synchronized void unregister() throws JMException {
+		if (name!=null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name = null;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.fathzer.soft.jclop;
+
+/** The JMX management interface of {@link ServiceStatistics}.
+ * <br>Operations are identified by the names of the {@link ServiceMetrics.Operation} constants.
+ */
+public interface ServiceStatisticsMBean {
+	/** Gets the names of the measured operations.
+	 * @return an array of operation names
+	 */
+	public String[] getOperations();
+
+	/** Gets the number of times an operation ended.
+	 * @param operation An operation name
+	 * @return a number of operations
+	 */
+	public long getCount(String operation);
+
+	/** Gets the number of times an operation failed or was cancelled.
+	 * @param operation An operation name
+	 * @return a number of operations
+	 */
+	public long getFailures(String operation);
+
+	/** Gets the average duration of an operation.
+	 * @param operation An operation name
+	 * @return a duration in ms, 0 if the operation was never performed
+	 */
+	public double getAverageTimeMillis(String operation);
+
+	/** Gets the maximum duration of an operation.
+	 * @param operation An operation name
+	 * @return a duration in ms
+	 */
+	public double getMaxTimeMillis(String operation);
+
+	/** Gets the distribution of the durations of an operation.
+	 * @param operation An operation name
+	 * @return an array of counts, see {@link ServiceStatistics#getHistogram(ServiceMetrics.Operation)}
+	 */
+	public long[] getHistogram(String operation);
+
+	/** Gets the number of bytes downloaded.
+	 * @return a number of bytes
+	 */
+	public long getBytesDownloaded();
+
+	/** Gets the number of bytes uploaded.
+	 * @return a number of bytes
+	 */
+	public long getBytesUploaded();
+
+	/** Gets the number of download retries.
+	 * @return a number of retries
+	 */
+	public long getDownloadRetries();
+
+	/** Gets the number of synchronizations that ended with {@link SynchronizationState#SYNCHRONIZED}.
+	 * @return a number of synchronizations
+	 */
+	public long getSynchronized();
+
+	/** Gets the number of synchronizations that ended with {@link SynchronizationState#CONFLICT}.
+	 * @return a number of synchronizations
+	 */
+	public long getConflicts();
+
+	/** Gets the number of synchronizations that ended with {@link SynchronizationState#REMOTE_DELETED}.
+	 * @return a number of synchronizations
+	 */
+	public long getRemoteDeleted();
+
+	/** Resets all the statistics. */
+	public void reset();
+}
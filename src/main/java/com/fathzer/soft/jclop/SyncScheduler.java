@@ -0,0 +1,365 @@
+package com.fathzer.soft.jclop;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** A scheduler that periodically synchronizes the cached entries of all the accounts of some services.
+ * <br>Every interval, each account is synchronized after a random delay (the jitter), in order to spread the load on the
+ * remote services. The entries of an account are synchronized one after the other, and the number of accounts synchronized at the same
+ * time is bounded by a global concurrency cap. An account whose previous synchronization is still in progress is skipped.
+ * <br>The synchronizations run on virtual threads when the JVM supports them, on a bounded thread pool otherwise.
+ * <br>Listeners are notified of the state of each synchronized entry by the thread that performed the synchronization.
+ * The notifications are serialized: a listener is never called by two threads at the same time.
+ * <br>Example:<br><code>
+ * SyncScheduler scheduler = new SyncScheduler(15*60*1000, 60*1000, 10);<br>
+ * scheduler.add(service);<br>
+ * scheduler.addListener(listener);<br>
+ * scheduler.start();
+ * </code>
+ */
+public class SyncScheduler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyncScheduler.class);
+
+	private final long interval;
+	private final long jitter;
+	private final int maxConcurrency;
+	private final Collection<Service> services;
+	private final List<SynchronizationListener> listeners;
+	private final Set<AccountKey> running;
+	private final Set<Run> runs;
+	private final Random random;
+	private ScheduledExecutorService timer;
+	private ExecutorService workers;
+	private final Semaphore permits;
+	/** The current generation, or null if the scheduler is stopped. */
+	private volatile Generation generation;
+
+	/** A period between a start and a stop of the scheduler.
+	 * <br>Every task captures the generation it belongs to, so a task of a stopped generation never works on behalf of
+	 * a later one, even if the scheduler was restarted in the meantime.
+	 */
+	private static final class Generation {
+		private volatile boolean stopped;
+	}
+
+	/** The key of an account in the set of running synchronizations.
+	 * <br>Accounts are only compared by their ids, two services may have accounts with the same id.
+	 */
+	private static final class AccountKey {
+		private final Service service;
+		private final String id;
+
+		private AccountKey(Service service, Account account) {
+			this.service = service;
+			this.id = account.getId();
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(service)*31 + id.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AccountKey)) {
+				return false;
+			}
+			AccountKey other = (AccountKey) obj;
+			return (service==other.service) && id.equals(other.id);
+		}
+	}
+
+	/** The Cancellable passed to the synchronizations.
+	 * <br>Its progress is ignored and it is cancelled when the generation it belongs to is stopped.
+	 */
+	private static final class Run implements Cancellable {
+		private final Generation generation;
+		private Runnable cancelAction;
+
+		private Run(Generation generation) {
+			this.generation = generation;
+		}
+
+		@Override
+		public void setPhase(String phase, int max) {
+			// Nobody looks at the progress of a scheduled synchronization
+		}
+
+		@Override
+		public void setMax(int length) {
+			// Nobody looks at the progress of a scheduled synchronization
+		}
+
+		@Override
+		public void reportProgress(int progress) {
+			// Nobody looks at the progress of a scheduled synchronization
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return generation.stopped;
+		}
+
+		@Override
+		public synchronized void setCancelAction(Runnable cancelTask) {
+			this.cancelAction = cancelTask;
+		}
+
+		private synchronized void cancel() {
+			if (cancelAction!=null) {
+				cancelAction.run();
+			}
+		}
+	}
+
+	/** Constructor.
+	 * @param interval The delay between two synchronizations of an account in ms.
+	 * @param jitter The maximum random delay added before the synchronization of an account in ms (0 to synchronize all the accounts at once).
+	 * @param maxConcurrency The maximum number of accounts synchronized at the same time.
+	 * @throws IllegalArgumentException if interval or maxConcurrency is not positive, or jitter is negative.
+	 */
+	public SyncScheduler(long interval, long jitter, int maxConcurrency) {
+		if ((interval<=0) || (jitter<0) || (maxConcurrency<=0)) {
+			throw new IllegalArgumentException();
+		}
+		this.interval = interval;
+		this.jitter = jitter;
+		this.maxConcurrency = maxConcurrency;
+		this.services = new CopyOnWriteArrayList<Service>();
+		this.listeners = new CopyOnWriteArrayList<SynchronizationListener>();
+		this.running = new HashSet<AccountKey>();
+		this.runs = new HashSet<Run>();
+		this.random = new Random();
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/** Adds a service to this scheduler.
+	 * <br>All the accounts of the service (including the ones created after this call) will be synchronized.
+	 * @param service The service
+	 */
+	public void add(Service service) {
+		services.add(service);
+	}
+
+	/** Removes a service from this scheduler.
+	 * <br>The synchronizations in progress are not cancelled.
+	 * @param service The service
+	 */
+	public void remove(Service service) {
+		services.remove(service);
+	}
+
+	/** Adds a listener.
+	 * <br>Please note that the listener is called by the threads that perform the synchronizations. These calls are serialized,
+	 * but they may come from different threads.
+	 * @param listener The listener
+	 */
+	public void addListener(SynchronizationListener listener) {
+		listeners.add(listener);
+	}
+
+	/** Removes a listener.
+	 * @param listener The listener
+	 */
+	public void removeListener(SynchronizationListener listener) {
+		listeners.remove(listener);
+	}
+
+	/** Starts the scheduler.
+	 * <br>A first synchronization of every account starts immediately (after its jitter delay).
+	 * <br>Calling this method on a started scheduler does nothing.
+	 */
+	public synchronized void start() {
+		if (generation!=null) {
+			return;
+		}
+		final Generation newGeneration = new Generation();
+		final ScheduledExecutorService newTimer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("jclop-scheduler")); //$NON-NLS-1$
+		final ExecutorService newWorkers = newWorkers();
+		newTimer.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				dispatch(newGeneration, newTimer, newWorkers);
+			}
+		}, 0, interval, TimeUnit.MILLISECONDS);
+		this.timer = newTimer;
+		this.workers = newWorkers;
+		this.generation = newGeneration;
+	}
+
+	/** Stops the scheduler.
+	 * <br>The synchronizations in progress are cancelled (their threads are interrupted) and the pending ones are not started.
+	 * <br>Calling this method on a stopped scheduler does nothing.
+	 */
+	public synchronized void stop() {
+		if (generation==null) {
+			return;
+		}
+		Generation old = generation;
+		old.stopped = true;
+		generation = null;
+		timer.shutdownNow();
+		workers.shutdownNow();
+		timer = null;
+		workers = null;
+		List<Run> toCancel = new ArrayList<Run>();
+		synchronized (runs) {
+			for (Run run : runs) {
+				if (run.generation==old) {
+					toCancel.add(run);
+				}
+			}
+		}
+		for (Run run : toCancel) {
+			run.cancel();
+		}
+	}
+
+	/** Tests whether this scheduler is started.
+	 * @return true if the scheduler is started.
+	 */
+	public boolean isStarted() {
+		return generation!=null;
+	}
+
+	private void dispatch(Generation generation, ScheduledExecutorService timer, ExecutorService workers) {
+		for (Service service : services) {
+			for (Account account : service.getAccounts()) {
+				schedule(generation, timer, workers, service, account);
+			}
+		}
+	}
+
+	private void schedule(final Generation generation, ScheduledExecutorService timer, final ExecutorService executor, final Service service, final Account account) {
+		long delay = jitter==0 ? 0 : (long)(random.nextDouble()*jitter);
+		Runnable command = new Runnable() {
+			@Override
+			public void run() {
+				if (!generation.stopped) {
+					try {
+						executor.execute(new Runnable() {
+							@Override
+							public void run() {
+								synchronize(generation, service, account);
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						// The scheduler was stopped in the meantime
+					}
+				}
+			}
+		};
+		try {
+			timer.schedule(command, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// The scheduler was stopped in the meantime
+		}
+	}
+
+	private void synchronize(Generation generation, Service service, Account account) {
+		AccountKey key = new AccountKey(service, account);
+		synchronized (running) {
+			if (!running.add(key)) {
+				// The previous synchronization is still in progress
+				return;
+			}
+		}
+		try {
+			permits.acquire();
+			try {
+				for (Entry entry : account.getLocalEntries()) {
+					if (generation.stopped) {
+						break;
+					}
+					synchronize(generation, service, service.getURI(entry));
+				}
+			} finally {
+				permits.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized (running) {
+				running.remove(key);
+			}
+		}
+	}
+
+	private void synchronize(Generation generation, Service service, URI uri) {
+		Run run = new Run(generation);
+		synchronized (runs) {
+			runs.add(run);
+		}
+		try {
+			SynchronizationState state = service.synchronize(uri, run, Locale.getDefault());
+			// Listeners don't have to be thread safe, notifications are serialized
+			synchronized (listeners) {
+				if (!generation.stopped) {
+					for (SynchronizationListener listener : listeners) {
+						listener.synchronizationDone(uri, state);
+					}
+				}
+			}
+		} catch (Exception e) {
+			synchronized (listeners) {
+				if (!generation.stopped) {
+					for (SynchronizationListener listener : listeners) {
+						listener.synchronizationFailed(uri, e);
+					}
+				}
+			}
+		} finally {
+			synchronized (runs) {
+				runs.remove(run);
+			}
+		}
+	}
+
+	/** Creates the executor that performs the synchronizations.
+	 * @return A virtual thread per task executor if available (Java 21+), a fixed thread pool limited to the concurrency cap otherwise.
+	 */
+	private ExecutorService newWorkers() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); //$NON-NLS-1$
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			LOGGER.debug("Virtual threads are not available, using a thread pool", e);
+			return Executors.newFixedThreadPool(maxConcurrency, new DaemonThreadFactory("jclop-sync")); //$NON-NLS-1$
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix+"-"+count.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.fathzer.soft.jclop;
+
+import java.net.URI;
+
+/** A listener of the synchronization of a set of URIs.
+ * <br>The methods of a listener are never called concurrently: {@link Service#synchronizeAll(java.util.Collection, java.util.concurrent.Executor, Cancellable, java.util.Locale, SynchronizationListener)}
+ * calls them from the thread that started the synchronization, and {@link SyncScheduler} serializes its notifications.
+ * So an implementation does not need to be thread safe.
+ * <br>Please note that SyncScheduler may call a listener from different threads (one call after the other). It guarantees
+ * that a call sees the changes made by the previous ones.
+ * @see SyncScheduler#addListener(SynchronizationListener)
+ * @see Service#synchronizeAll(java.util.Collection, java.util.concurrent.Executor, Cancellable, java.util.Locale, SynchronizationListener)
+ */
+public interface SynchronizationListener {
+	/** This method is called when an URI has been synchronized.
+	 * @param uri The URI
+	 * @param state The synchronization state
+	 */
+	public void synchronizationDone(URI uri, SynchronizationState state);
+
+	/** This method is called when the synchronization of an URI failed.
+	 * @param uri The URI
+	 * @param e The exception that occurred
+	 */
+	public void synchronizationFailed(URI uri, Exception e);
+}
@@ -0,0 +1,141 @@
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** The persisted state of an interrupted chunked transfer.
+ * <br>It is stored in the cache folder of the transferred entry, next to the cache file.
+ * It allows a transfer interrupted by a crash or a cancellation to restart from the last confirmed chunk.
+ */
+final class TransferCheckpoint {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransferCheckpoint.class);
+	private static final String REVISION = "revision"; //$NON-NLS-1$
+	private static final String SESSION = "session"; //$NON-NLS-1$
+	private static final String SOURCE = "source"; //$NON-NLS-1$
+	private static final String LENGTH = "length"; //$NON-NLS-1$
+	private static final String OFFSET = "offset"; //$NON-NLS-1$
+
+	private final File file;
+	private final Properties properties;
+
+	/** Loads a checkpoint.
+	 * @param file The checkpoint file
+	 * <br>If the file does not exist or is corrupted, the checkpoint is empty.
+	 */
+	TransferCheckpoint(File file) {
+		this.file = file;
+		this.properties = new Properties();
+		if (file.isFile()) {
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					properties.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Unable to read transfer checkpoint "+file+", it is ignored", e);
+				properties.clear();
+			}
+		}
+	}
+
+	/** Gets the remote revision that is downloaded.
+	 * @return a String or null if the checkpoint is empty.
+	 */
+	String getRevision() {
+		return properties.getProperty(REVISION);
+	}
+
+	void setRevision(String revision) {
+		properties.setProperty(REVISION, revision);
+	}
+
+	/** Gets the remote upload session.
+	 * @return a String or null if the checkpoint is empty.
+	 */
+	String getSession() {
+		return properties.getProperty(SESSION);
+	}
+
+	void setSession(String session) {
+		properties.setProperty(SESSION, session);
+	}
+
+	/** Gets the signature of the local file that is uploaded.
+	 * @return a String or null if the checkpoint is empty.
+	 */
+	String getSource() {
+		return properties.getProperty(SOURCE);
+	}
+
+	void setSource(String source) {
+		properties.setProperty(SOURCE, source);
+	}
+
+	/** Gets the total number of bytes to transfer.
+	 * @return a long or -1 if the checkpoint is empty.
+	 */
+	long getLength() {
+		return getLong(LENGTH);
+	}
+
+	void setLength(long length) {
+		properties.setProperty(LENGTH, Long.toString(length));
+	}
+
+	/** Gets the number of bytes that were successfully transferred.
+	 * @return a long or -1 if the checkpoint is empty.
+	 */
+	long getOffset() {
+		return getLong(OFFSET);
+	}
+
+	void setOffset(long offset) {
+		properties.setProperty(OFFSET, Long.toString(offset));
+	}
+
+	private long getLong(String key) {
+		try {
+			String value = properties.getProperty(key);
+			return value==null ? -1 : Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/** Saves the checkpoint.
+	 * <br>The checkpoint is written in a temporary file, then renamed, in order to never have a partially written checkpoint.
+	 * @throws IOException if the checkpoint can't be written.
+	 */
+	void save() throws IOException {
+		File tmpFile = new File(file.getParent(), file.getName()+".tmp"); //$NON-NLS-1$
+		FileOutputStream out = new FileOutputStream(tmpFile);
+		try {
+			properties.store(out, null);
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!tmpFile.renameTo(file)) {
+			// Some platforms can't rename a file to an existing one
+			file.delete();
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("Unable to write "+file);
+			}
+		}
+	}
+
+	/** Deletes the checkpoint. */
+	void delete() {
+		properties.clear();
+		file.delete();
+	}
+}
@@ -1,5 +1,5 @@
-/**This is the main package.
- * @author Jean-Marc Astesana
- *
- */
+/**This is the main package.
+ * @author Jean-Marc Astesana
+ *
+ */
 package com.fathzer.soft.jclop;
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.fathzer.soft.jclop.swing;
+
+import com.fathzer.soft.jclop.SynchronizationState;
+
+/** The synchronization state of an entry, as displayed by the chooser.
+ * <br>Unlike {@link SynchronizationState}, which is the result of a synchronization, this state is deduced from the entries' metadata
+ * without any remote call. It tells what a synchronization would do.
+ */
+enum EntryState {
+	/** The cache and the remote entry have the same content (see {@link SynchronizationState#SYNCHRONIZED}).
+	 * <br>If the remote revision is unknown, an unmodified cache is considered synchronized.
+	 */
+	SYNCHRONIZED,
+	/** The cache was modified since its last synchronization, the remote entry was not. A synchronization would upload the cache. */
+	LOCAL_CHANGES,
+	/** The remote entry was modified since the cache was synchronized, the cache was not. A synchronization would download the remote entry. */
+	REMOTE_CHANGES,
+	/** Both the cache and the remote entry were modified (see {@link SynchronizationState#CONFLICT}). */
+	CONFLICT,
+	/** The cache was synchronized once, but the remote entry no longer exists (see {@link SynchronizationState#REMOTE_DELETED}). */
+	REMOTE_DELETED,
+	/** The entry was never synchronized and does not exist remotely. A synchronization would upload the cache. */
+	LOCAL_ONLY,
+	/** The entry exists remotely, but is not cached. */
+	REMOTE_ONLY
+}
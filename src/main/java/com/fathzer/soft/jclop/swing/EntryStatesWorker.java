@@ -0,0 +1,90 @@
+package com.fathzer.soft.jclop.swing;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fathzer.soft.ajlib.swing.worker.Worker;
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Entry;
+import com.fathzer.soft.jclop.EntryInfo;
+import com.fathzer.soft.jclop.Service;
+
+/** A worker that computes the synchronization states of all the entries of an account.
+ * <br>The states are deduced from the entries' metadata (see {@link Entry#getInfo()}). The cache is only read for the cached entries
+ * that have no metadata. The remote service is never called.
+ */
+final class EntryStatesWorker extends Worker<Map<Entry, EntryState>, Void> {
+	private final Account account;
+	private final Collection<Entry> remoteEntries;
+
+	/** Constructor.
+	 * @param account The account
+	 * @param remoteEntries The last known remote entries of the account, or null if they are unknown.
+	 */
+	EntryStatesWorker(Account account, Collection<Entry> remoteEntries) {
+		this.account = account;
+		this.remoteEntries = remoteEntries;
+	}
+
+	@Override
+	protected Map<Entry, EntryState> doProcessing() throws Exception {
+		Map<Entry, Entry> remote = null;
+		if (remoteEntries!=null) {
+			remote = new HashMap<Entry, Entry>(remoteEntries.size()*4/3+1);
+			for (Entry entry : remoteEntries) {
+				remote.put(entry, entry);
+			}
+		}
+		Map<Entry, EntryState> result = new HashMap<Entry, EntryState>();
+		for (Entry local : account.getLocalEntries()) {
+			if (isCancelled()) {
+				return null;
+			}
+			Entry remoteEntry = remote==null ? null : remote.remove(local);
+			result.put(local, getState(local, remote!=null, remoteEntry));
+		}
+		if (remote!=null) {
+			for (Entry entry : remote.keySet()) {
+				result.put(entry, EntryState.REMOTE_ONLY);
+			}
+		}
+		return result;
+	}
+
+	/** Gets the state of a cached entry.
+	 * @param local The cached entry
+	 * @param remoteKnown true if the remote entries are known
+	 * @param remote The remote entry, or null if it does not exist or is unknown
+	 * @return The entry's state
+	 */
+	private EntryState getState(Entry local, boolean remoteKnown, Entry remote) {
+		String localRevision;
+		boolean synchronizedCache;
+		EntryInfo info = local.getInfo();
+		if (info!=null) {
+			localRevision = info.getRevision();
+			synchronizedCache = info.isSynchronized();
+		} else {
+			Service service = account.getService();
+			URI uri = service.getURI(local);
+			localRevision = service.getLocalRevision(uri);
+			synchronizedCache = service.isSynchronized(uri);
+		}
+		if (remote==null) {
+			if (localRevision==null) {
+				return EntryState.LOCAL_ONLY;
+			} else if (remoteKnown) {
+				return EntryState.REMOTE_DELETED;
+			}
+		}
+		String remoteRevision = (remote==null) || (remote.getInfo()==null) ? null : remote.getInfo().getRevision();
+		if ((remoteRevision==null) || remoteRevision.equals(localRevision)) {
+			// If the remote revision is unknown, assume it did not change
+			return synchronizedCache ? EntryState.SYNCHRONIZED : EntryState.LOCAL_CHANGES;
+		} else {
+			return synchronizedCache ? EntryState.REMOTE_CHANGES : EntryState.CONFLICT;
+		}
+	}
+}
@@ -1,53 +1,210 @@
-package com.fathzer.soft.jclop.swing;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.swing.table.AbstractTableModel;
-
-import com.fathzer.soft.jclop.Entry;
-
-
-@SuppressWarnings("serial")
-class FilesTableModel extends AbstractTableModel {
-	private List<Entry> rows;
-
-	public FilesTableModel() {
-		super();
-		rows = new ArrayList<Entry>();
-	}
-
-	@Override
-	public int getRowCount() {
-		return rows.size();
-	}
-
-	@Override
-	public int getColumnCount() {
-		return 1;
-	}
-
-	@Override
-	public Object getValueAt(int rowIndex, int columnIndex) {
-		return rows.get(rowIndex).getDisplayName();
-	}
-
-	void clear() {
-		rows.clear();
-		fireTableDataChanged();
-	}
-	
-	void add(Entry rentry) {
-		int len = getRowCount();
-		rows.add(rentry);
-		fireTableRowsInserted(len, len);
-	}
-	
-	protected Entry getEntry(int row) {
-		return rows.get(row);
-	}
-
-	protected int indexOf(Entry entry) {
-		return rows.indexOf(entry);
-	}
-}
+package com.fathzer.soft.jclop.swing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+
+import com.fathzer.soft.jclop.Entry;
+
+
+@SuppressWarnings("serial")
+class FilesTableModel extends AbstractTableModel {
+	/** The maximum number of contiguous changes notified with row events. Above this number, a data changed event is fired. */
+	private static final int MAX_RUNS = 16;
+	/** The maximum number of state cells notified one by one by {@link FilesTableModel#setStates(Map)}. Above this number, the whole column is notified. */
+	private static final int MAX_UPDATED_CELLS = 256;
+	/** The column that contains the entries' names. */
+	static final int NAME_COLUMN = 0;
+	/** The column that contains the entries' synchronization states. */
+	static final int STATE_COLUMN = 1;
+
+	/** A run of contiguous rows inserted or deleted by {@link FilesTableModel#setEntries(List)}. */
+	private static final class Run {
+		private final boolean insertion;
+		private final int row;
+		private final int count;
+
+		private Run(boolean insertion, int row, int count) {
+			this.insertion = insertion;
+			this.row = row;
+			this.count = count;
+		}
+	}
+
+	private List<Entry> rows;
+	/** The rows indexed by their entries' display name, or null if it has to be rebuilt. */
+	private Map<String, Integer> index;
+	/** The index used to search the entries' display names, or null if it has to be rebuilt. */
+	private NameIndex nameIndex;
+	private Map<Entry, EntryState> states;
+
+	public FilesTableModel() {
+		super();
+		rows = new ArrayList<Entry>();
+		states = Collections.emptyMap();
+	}
+
+	@Override
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return 2;
+	}
+
+	@Override
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		Entry entry = rows.get(rowIndex);
+		return columnIndex==STATE_COLUMN ? states.get(entry) : entry.getDisplayName();
+	}
+
+	/** Sets the synchronization states of the entries.
+	 * <br>Only the cells whose state changed are notified, so the table repaints nothing else.
+	 * @param states The states of the entries. Entries that are not in this map have no state.
+	 */
+	void setStates(Map<Entry, EntryState> states) {
+		int[] changed = new int[Math.min(rows.size(), MAX_UPDATED_CELLS+1)];
+		int count = 0;
+		for (int row = 0; (row < rows.size()) && (count<changed.length); row++) {
+			Entry entry = rows.get(row);
+			if (this.states.get(entry)!=states.get(entry)) {
+				changed[count++] = row;
+			}
+		}
+		this.states = states;
+		if (count>MAX_UPDATED_CELLS) {
+			fireTableChanged(new TableModelEvent(this, 0, rows.size()-1, STATE_COLUMN));
+		} else {
+			for (int i = 0; i < count; i++) {
+				fireTableCellUpdated(changed[i], STATE_COLUMN);
+			}
+		}
+	}
+
+	void clear() {
+		rows.clear();
+		index = null;
+		nameIndex = null;
+		fireTableDataChanged();
+	}
+
+	/** Replaces the entries of this model.
+	 * <br>Only the differences between the current entries and the new ones are applied: each run of contiguous inserted or deleted
+	 * rows fires one event. If there are too many runs, a single data changed event is fired.
+	 * @param entries The new entries, sorted in their natural order, without duplicates.
+	 */
+	void setEntries(List<Entry> entries) {
+		List<Run> runs = diff(entries);
+		if (runs.isEmpty()) {
+			// Same entries, but the instances may have changed
+			rows = new ArrayList<Entry>(entries);
+			return;
+		}
+		index = null;
+		nameIndex = null;
+		if (runs.size()>MAX_RUNS) {
+			rows = new ArrayList<Entry>(entries);
+			fireTableDataChanged();
+			return;
+		}
+		for (Run run : runs) {
+			if (run.insertion) {
+				rows.addAll(run.row, entries.subList(run.row, run.row+run.count));
+				fireTableRowsInserted(run.row, run.row+run.count-1);
+			} else {
+				rows.subList(run.row, run.row+run.count).clear();
+				fireTableRowsDeleted(run.row, run.row+run.count-1);
+			}
+		}
+		// The model now contains the same entries, make it use the new instances
+		rows = new ArrayList<Entry>(entries);
+	}
+
+	/** Computes the runs of rows to delete or insert to transform the current rows into a new list.
+	 * <br>The runs are sorted in the order they should be applied. The row of each run is its position in the list
+	 * after the previous runs are applied (which is also its position in the new list).
+	 * @param entries The new entries, sorted in their natural order.
+	 * @return a list of runs, empty if the entries are the same as the current ones.
+	 */
+	private List<Run> diff(List<Entry> entries) {
+		List<Run> runs = new ArrayList<Run>();
+		int i = 0;
+		int j = 0;
+		while ((i<rows.size()) || (j<entries.size())) {
+			int comparison = compare(i, entries, j);
+			if (comparison==0) {
+				i++;
+				j++;
+			} else if (comparison<0) {
+				// The current row is not in the new list
+				int start = i;
+				do {
+					i++;
+				} while ((i<rows.size()) && (compare(i, entries, j)<0));
+				runs.add(new Run(false, j, i-start));
+			} else {
+				// The new entry is not in the current rows
+				int start = j;
+				do {
+					j++;
+				} while ((j<entries.size()) && (compare(i, entries, j)>0));
+				runs.add(new Run(true, start, j-start));
+			}
+		}
+		return runs;
+	}
+
+	private int compare(int row, List<Entry> entries, int position) {
+		if (row>=rows.size()) {
+			return 1;
+		} else if (position>=entries.size()) {
+			return -1;
+		} else {
+			return rows.get(row).compareTo(entries.get(position));
+		}
+	}
+
+	protected Entry getEntry(int row) {
+		return rows.get(row);
+	}
+
+	protected int indexOf(Entry entry) {
+		if (entry==null) {
+			return -1;
+		}
+		int row = indexOf(entry.getDisplayName());
+		return (row>=0) && rows.get(row).equals(entry) ? row : -1;
+	}
+
+	/** Gets the index of the entries' display names.
+	 * @return a NameIndex whose rows are the rows of this model.
+	 */
+	NameIndex getNameIndex() {
+		if (nameIndex==null) {
+			nameIndex = new NameIndex(rows);
+		}
+		return nameIndex;
+	}
+
+	/** Gets the row of an entry.
+	 * @param displayName The entry's display name
+	 * @return the row or a negative number if no entry has this name.
+	 */
+	int indexOf(String displayName) {
+		if (index==null) {
+			index = new HashMap<String, Integer>(rows.size()*4/3+1);
+			for (int row = 0; row < rows.size(); row++) {
+				index.put(rows.get(row).getDisplayName(), row);
+			}
+		}
+		Integer row = index.get(displayName);
+		return row==null ? -1 : row;
+	}
+}
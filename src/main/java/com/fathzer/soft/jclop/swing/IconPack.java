@@ -1,92 +1,218 @@
-package com.fathzer.soft.jclop.swing;
-
-import javax.swing.Icon;
-import javax.swing.ImageIcon;
-
-/** The icon pack used by URIChooser class.
- * @author Jean-Marc Astesana (License : GPL v3)
- */
-public final class IconPack {
-	public static final IconPack DEFAULT = new IconPack();
-	
-	private Icon newAccount; 
-	private Icon deleteAccount; 
-	private Icon synchronize; 
-	private Icon linked; 
-	private Icon notLinked; 
-	
-	public IconPack() {
-		// Nothing to do (icons are instantiate using lazy initialization)
-	}
-
-	public Icon getSynchronize() {
-		if (synchronize==null) {
-			synchronize = new ImageIcon(IconPack.class.getResource("synchronize.png")); //$NON-NLS-1$
-		}
-		return synchronize;
-	}
-
-	public Icon getNewAccount() {
-		if (newAccount==null) {
-			newAccount = new ImageIcon(IconPack.class.getResource("new.png")); //$NON-NLS-1$
-		}
-		return newAccount;
-	}
-
-	public Icon getDeleteAccount() {
-		if (deleteAccount==null) {
-			deleteAccount = new ImageIcon(IconPack.class.getResource("delete.png")); //$NON-NLS-1$
-		}
-		return deleteAccount;
-	}
-
-	public Icon getLinked() {
-		if (linked==null) {
-			linked = new ImageIcon(IconPack.class.getResource("linked.png")); //$NON-NLS-1$
-		}
-		return linked;
-	}
-
-	public Icon getNotLinked() {
-		if (notLinked==null) {
-			notLinked = new ImageIcon(IconPack.class.getResource("notLinked.png")); //$NON-NLS-1$
-		}
-		return notLinked;
-	}
-
-	/** Sets the "new Account" button icon
-	 * @param icon the icon to set
-	 */
-	public void setNewAccount(Icon icon) {
-		this.newAccount = icon;
-	}
-
-	/** Sets the "delete Account" button icon
-	 * @param icon the deleteAccount to set
-	 */
-	public void setDeleteAccount(Icon icon) {
-		this.deleteAccount = icon;
-	}
-
-	/** Sets the "synchronize" button icon
-	 * @param icon the synchronize to set
-	 */
-	public void setSynchronize(Icon icon) {
-		this.synchronize = icon;
-	}
-
-	/** Sets the "linked" icon
-	 * @param icon the synchronize to set
-	 */
-	public void setLinked(Icon icon) {
-		this.linked = icon;
-	}
-
-	/** Sets the "not linked" icon
-	 * @param icon the synchronize to set
-	 */
-	public void setNotLinked(Icon icon) {
-		this.notLinked = icon;
-	}
-	
-}
+package com.fathzer.soft.jclop.swing;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+/** The icon pack used by URIChooser class.
+ * @author Jean-Marc Astesana (License : GPL v3)
+ */
+public final class IconPack {
+	public static final IconPack DEFAULT = new IconPack();
+	
+	private Icon newAccount; 
+	private Icon deleteAccount; 
+	private Icon synchronize; 
+	private Icon linked; 
+	private Icon notLinked; 
+	private Icon synchronizedEntry;
+	private Icon localChanges;
+	private Icon remoteChanges;
+	private Icon conflict;
+	private Icon remoteDeleted;
+	private Icon localOnly;
+	private Icon remoteOnly;
+	
+	public IconPack() {
+		// Nothing to do (icons are instantiate using lazy initialization)
+	}
+
+	public Icon getSynchronize() {
+		if (synchronize==null) {
+			synchronize = new ImageIcon(IconPack.class.getResource("synchronize.png")); //$NON-NLS-1$
+		}
+		return synchronize;
+	}
+
+	public Icon getNewAccount() {
+		if (newAccount==null) {
+			newAccount = new ImageIcon(IconPack.class.getResource("new.png")); //$NON-NLS-1$
+		}
+		return newAccount;
+	}
+
+	public Icon getDeleteAccount() {
+		if (deleteAccount==null) {
+			deleteAccount = new ImageIcon(IconPack.class.getResource("delete.png")); //$NON-NLS-1$
+		}
+		return deleteAccount;
+	}
+
+	public Icon getLinked() {
+		if (linked==null) {
+			linked = new ImageIcon(IconPack.class.getResource("linked.png")); //$NON-NLS-1$
+		}
+		return linked;
+	}
+
+	public Icon getNotLinked() {
+		if (notLinked==null) {
+			notLinked = new ImageIcon(IconPack.class.getResource("notLinked.png")); //$NON-NLS-1$
+		}
+		return notLinked;
+	}
+
+	/** Sets the "new Account" button icon
+	 * @param icon the icon to set
+	 */
+	public void setNewAccount(Icon icon) {
+		this.newAccount = icon;
+	}
+
+	/** Sets the "delete Account" button icon
+	 * @param icon the deleteAccount to set
+	 */
+	public void setDeleteAccount(Icon icon) {
+		this.deleteAccount = icon;
+	}
+
+	/** Sets the "synchronize" button icon
+	 * @param icon the synchronize to set
+	 */
+	public void setSynchronize(Icon icon) {
+		this.synchronize = icon;
+	}
+
+	/** Sets the "linked" icon
+	 * @param icon the synchronize to set
+	 */
+	public void setLinked(Icon icon) {
+		this.linked = icon;
+	}
+
+	/** Sets the "not linked" icon
+	 * @param icon the synchronize to set
+	 */
+	public void setNotLinked(Icon icon) {
+		this.notLinked = icon;
+	}
+
+	/** Gets the icon of an entry whose cache is synchronized.
+	 * @return an icon
+	 */
+	public Icon getSynchronizedEntry() {
+		if (synchronizedEntry==null) {
+			synchronizedEntry = new ImageIcon(IconPack.class.getResource("synchronized.png")); //$NON-NLS-1$
+		}
+		return synchronizedEntry;
+	}
+
+	/** Gets the icon of an entry whose cache was modified since its last synchronization.
+	 * @return an icon
+	 */
+	public Icon getLocalChanges() {
+		if (localChanges==null) {
+			localChanges = new ImageIcon(IconPack.class.getResource("localChanges.png")); //$NON-NLS-1$
+		}
+		return localChanges;
+	}
+
+	/** Gets the icon of an entry that was remotely modified since its last synchronization.
+	 * @return an icon
+	 */
+	public Icon getRemoteChanges() {
+		if (remoteChanges==null) {
+			remoteChanges = new ImageIcon(IconPack.class.getResource("remoteChanges.png")); //$NON-NLS-1$
+		}
+		return remoteChanges;
+	}
+
+	/** Gets the icon of an entry modified both locally and remotely.
+	 * @return an icon
+	 */
+	public Icon getConflict() {
+		if (conflict==null) {
+			conflict = new ImageIcon(IconPack.class.getResource("conflict.png")); //$NON-NLS-1$
+		}
+		return conflict;
+	}
+
+	/** Gets the icon of an entry that was remotely deleted since its last synchronization.
+	 * @return an icon
+	 */
+	public Icon getRemoteDeleted() {
+		if (remoteDeleted==null) {
+			remoteDeleted = new ImageIcon(IconPack.class.getResource("conflict.png")); //$NON-NLS-1$
+		}
+		return remoteDeleted;
+	}
+
+	/** Gets the icon of an entry that was never synchronized.
+	 * @return an icon
+	 */
+	public Icon getLocalOnly() {
+		if (localOnly==null) {
+			localOnly = new ImageIcon(IconPack.class.getResource("computer.png")); //$NON-NLS-1$
+		}
+		return localOnly;
+	}
+
+	/** Gets the icon of an entry that is not cached.
+	 * @return an icon
+	 */
+	public Icon getRemoteOnly() {
+		if (remoteOnly==null) {
+			remoteOnly = new ImageIcon(IconPack.class.getResource("remoteOnly.png")); //$NON-NLS-1$
+		}
+		return remoteOnly;
+	}
+
+	/** Sets the icon of an entry whose cache is synchronized.
+	 * @param icon the icon to set
+	 */
+	public void setSynchronizedEntry(Icon icon) {
+		this.synchronizedEntry = icon;
+	}
+
+	/** Sets the icon of an entry whose cache was modified since its last synchronization.
+	 * @param icon the icon to set
+	 */
+	public void setLocalChanges(Icon icon) {
+		this.localChanges = icon;
+	}
+
+	/** Sets the icon of an entry that was remotely modified since its last synchronization.
+	 * @param icon the icon to set
+	 */
+	public void setRemoteChanges(Icon icon) {
+		this.remoteChanges = icon;
+	}
+
+	/** Sets the icon of an entry modified both locally and remotely.
+	 * @param icon the icon to set
+	 */
+	public void setConflict(Icon icon) {
+		this.conflict = icon;
+	}
+
+	/** Sets the icon of an entry that was remotely deleted since its last synchronization.
+	 * @param icon the icon to set
+	 */
+	public void setRemoteDeleted(Icon icon) {
+		this.remoteDeleted = icon;
+	}
+
+	/** Sets the icon of an entry that was never synchronized.
+	 * @param icon the icon to set
+	 */
+	public void setLocalOnly(Icon icon) {
+		this.localOnly = icon;
+	}
+
+	/** Sets the icon of an entry that is not cached.
+	 * @param icon the icon to set
+	 */
+	public void setRemoteOnly(Icon icon) {
+		this.remoteOnly = icon;
+	}
+	
+}
@@ -0,0 +1,198 @@
+package com.fathzer.soft.jclop.swing;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import com.fathzer.soft.jclop.Entry;
+
+/** An index of the display names of a list of entries, used to find the entries whose name contains a string.
+ * <br>Names are compared ignoring case. Every character, and every pair of consecutive characters, is mapped to the rows
+ * whose name contains it. Only the rows of the least frequent pair of the searched string have to be checked.
+ * <br>The last result is remembered: when the user types one more character, only the rows that matched the previous
+ * string are checked.
+ * <br>As building the index costs more than checking every name once, it is only built when a second search can't reuse
+ * the result of the previous one. A chooser whose list changes while the user is not searching never builds it.
+ * <br>This class is not thread safe.
+ */
+final class NameIndex {
+	/** The rows that contain a key, sorted in ascending order. */
+	private static final class Postings {
+		private int[] rows = new int[4];
+		private int size;
+
+		private void add(int row) {
+			if (size>0 && rows[size-1]==row) {
+				// The key appears more than once in this name
+				return;
+			}
+			if (size==rows.length) {
+				int[] bigger = new int[2*size];
+				System.arraycopy(rows, 0, bigger, 0, size);
+				rows = bigger;
+			}
+			rows[size++] = row;
+		}
+	}
+
+	/** A map from characters, or pairs of characters, to their postings. */
+	private static final class PostingsMap {
+		private int[] keys = new int[1024];
+		private Postings[] values = new Postings[keys.length];
+		private int size;
+
+		private Postings get(int key) {
+			int slot = slot(key);
+			return values[slot];
+		}
+
+		private void add(int key, int row) {
+			int slot = slot(key);
+			if (values[slot]==null) {
+				if (2*(size+1)>keys.length) {
+					grow();
+					slot = slot(key);
+				}
+				keys[slot] = key;
+				values[slot] = new Postings();
+				size++;
+			}
+			values[slot].add(row);
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			Postings[] oldValues = values;
+			keys = new int[2*oldKeys.length];
+			values = new Postings[keys.length];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldValues[i]!=null) {
+					int slot = slot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					values[slot] = oldValues[i];
+				}
+			}
+		}
+
+		/** Gets the slot of a key: the slot that contains the key or, if the key is not in the map, the empty slot where it should be added. */
+		private int slot(int key) {
+			int mask = keys.length-1;
+			int hash = key*0x9E3779B9;
+			int slot = (hash ^ (hash>>>16)) & mask;
+			while (values[slot]!=null && keys[slot]!=key) {
+				slot = (slot+1) & mask;
+			}
+			return slot;
+		}
+	}
+
+	private final String[] names;
+	private PostingsMap singles;
+	private PostingsMap pairs;
+	private String lastSearched;
+	private BitSet lastResult;
+
+	/** Constructor.
+	 * @param entries The entries, in the order of the rows.
+	 */
+	NameIndex(List<Entry> entries) {
+		this.names = new String[entries.size()];
+		for (int row = 0; row < names.length; row++) {
+			names[row] = entries.get(row).getDisplayName().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/** Finds the rows whose name contains a string.
+	 * @param text The searched string (case is ignored)
+	 * @return The matching rows. This BitSet should not be modified.
+	 */
+	BitSet find(String text) {
+		String searched = text.toLowerCase(Locale.ROOT);
+		if (!searched.equals(lastSearched)) {
+			lastResult = doFind(searched);
+			lastSearched = searched;
+		}
+		return lastResult;
+	}
+
+	private BitSet doFind(String searched) {
+		BitSet result = new BitSet(names.length);
+		if (searched.length()==0) {
+			result.set(0, names.length);
+		} else if (lastSearched!=null && lastSearched.length()>0 && searched.contains(lastSearched)) {
+			// The user refined the previous search, only the previous result has to be checked
+			for (int row = lastResult.nextSetBit(0); row >= 0; row = lastResult.nextSetBit(row+1)) {
+				check(searched, row, result);
+			}
+		} else if (lastSearched==null) {
+			// First search, the index is not worth building yet
+			for (int row = 0; row < names.length; row++) {
+				check(searched, row, result);
+			}
+		} else {
+			findIndexed(searched, result);
+		}
+		return result;
+	}
+
+	private void findIndexed(String searched, BitSet result) {
+		buildPostings();
+		Postings candidates;
+		if (searched.length()==1) {
+			candidates = singles.get(key(searched.charAt(0), (char)0));
+		} else {
+			candidates = null;
+			for (int i = 0; i < searched.length()-1; i++) {
+				Postings postings = pairs.get(key(searched.charAt(i), searched.charAt(i+1)));
+				if (postings==null) {
+					// No name contains this pair
+					return;
+				}
+				if (candidates==null || postings.size<candidates.size) {
+					candidates = postings;
+				}
+			}
+		}
+		if (candidates==null) {
+			return;
+		}
+		if (searched.length()<=2) {
+			// The postings are the result
+			for (int i = 0; i < candidates.size; i++) {
+				result.set(candidates.rows[i]);
+			}
+		} else {
+			for (int i = 0; i < candidates.size; i++) {
+				check(searched, candidates.rows[i], result);
+			}
+		}
+	}
+
+	private void check(String searched, int row, BitSet result) {
+		if (names[row].contains(searched)) {
+			result.set(row);
+		}
+	}
+
+	/** Builds the postings the first time they are needed. */
+	private void buildPostings() {
+		if (singles!=null) {
+			return;
+		}
+		singles = new PostingsMap();
+		pairs = new PostingsMap();
+		for (int row = 0; row < names.length; row++) {
+			String name = names[row];
+			for (int i = 0; i < name.length(); i++) {
+				singles.add(key(name.charAt(i), (char)0), row);
+				if (i<name.length()-1) {
+					pairs.add(key(name.charAt(i), name.charAt(i+1)), row);
+				}
+			}
+		}
+	}
+
+	private static int key(char first, char second) {
+		return (first<<16) | second;
+	}
+}
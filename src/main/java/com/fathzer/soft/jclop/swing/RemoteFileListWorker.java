@@ -1,36 +1,72 @@
-package com.fathzer.soft.jclop.swing;
-
-import java.util.Collection;
-
-import com.fathzer.soft.ajlib.swing.worker.Worker;
-import com.fathzer.soft.jclop.Account;
-import com.fathzer.soft.jclop.Cancellable;
-import com.fathzer.soft.jclop.Entry;
-
-
-final class RemoteFileListWorker extends Worker<Collection<Entry>, Void> implements Cancellable {
-	private final Account account;
-
-	RemoteFileListWorker(Account account) {
-		this.account = account;
-	}
-
-	@Override
-	protected Collection<Entry> doProcessing() throws Exception {
-		return account.getService().getRemoteEntries(account, this);
-	}
-
-	@Override
-	public void setPhase(String phase, int phaseLength) {
-		super.setPhase(phase, phaseLength);
-	}
-
-	@Override
-	public void setCancelAction(Runnable action) {
-	}
-
-	@Override
-	public void setMax(int length) {
-		super.setPhaseLength(length);
-	}
-}
\ No newline at end of file
+package com.fathzer.soft.jclop.swing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.fathzer.soft.ajlib.swing.worker.Worker;
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Cancellable;
+import com.fathzer.soft.jclop.Entry;
+import com.fathzer.soft.jclop.RemoteEntriesListener;
+
+/** A worker that lists the remote entries of an account.
+ * <br>The entries are published page by page while they are listed. They are delivered, in the event dispatch thread,
+ * to an optional listener.
+ */
+final class RemoteFileListWorker extends Worker<Collection<Entry>, Collection<Entry>> implements Cancellable {
+	private final Account account;
+	private final RemoteEntriesListener pageListener;
+
+	/** Constructor.
+	 * @param account The account to list
+	 * @param pageListener A listener that receives the pages of entries in the event dispatch thread, or null.
+	 */
+	RemoteFileListWorker(Account account, RemoteEntriesListener pageListener) {
+		this.account = account;
+		this.pageListener = pageListener;
+	}
+
+	@Override
+	protected Collection<Entry> doProcessing() throws Exception {
+		final Collection<Entry> result = new ArrayList<Entry>();
+		account.getRemoteEntries(this, new RemoteEntriesListener() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void entriesFound(Collection<Entry> entries) {
+				result.addAll(entries);
+				if (pageListener!=null) {
+					publish(new ArrayList<Entry>(entries));
+				}
+			}
+		});
+		return result;
+	}
+
+	@Override
+	protected void process(List<Collection<Entry>> pages) {
+		if (isCancelled()) {
+			return;
+		}
+		// Pages published since the last call are delivered at once
+		Collection<Entry> entries = new ArrayList<Entry>();
+		for (Collection<Entry> page : pages) {
+			entries.addAll(page);
+		}
+		pageListener.entriesFound(entries);
+	}
+
+	@Override
+	public void setPhase(String phase, int phaseLength) {
+		super.setPhase(phase, phaseLength);
+	}
+
+	@Override
+	public void setCancelAction(Runnable action) {
+	}
+
+	@Override
+	public void setMax(int length) {
+		super.setPhaseLength(length);
+	}
+}
@@ -0,0 +1,101 @@
+package com.fathzer.soft.jclop.swing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fathzer.soft.ajlib.utilities.NullUtils;
+
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Entry;
+
+/** The last remote listings of the accounts displayed by a chooser.
+ * <br>A remembered listing is displayed immediately when an account is selected, then it is revalidated in the background
+ * if it is older than the cache's time to live.
+ * <br>This class is not thread safe, it should only be used in the event dispatch thread.
+ */
+final class RemoteListingCache {
+	/** A remembered listing. */
+	static final class Listing {
+		private final Collection<Entry> entries;
+		private final long time;
+
+		private Listing(Collection<Entry> entries) {
+			this.entries = entries;
+			this.time = System.currentTimeMillis();
+		}
+
+		/** Gets the remote entries.
+		 * @return a collection of entries
+		 */
+		Collection<Entry> getEntries() {
+			return entries;
+		}
+	}
+
+	private final Map<Account, Listing> listings;
+	private long timeToLive;
+
+	/** Constructor.
+	 * @param timeToLive The time in ms during which a listing does not need to be revalidated.
+	 */
+	RemoteListingCache(long timeToLive) {
+		this.listings = new HashMap<Account, Listing>();
+		this.timeToLive = timeToLive;
+	}
+
+	/** Sets the time during which a listing does not need to be revalidated.
+	 * @param timeToLive a time in ms.
+	 */
+	void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/** Gets the remembered listing of an account.
+	 * @param account The account
+	 * @return a listing or null if the account was never listed.
+	 */
+	Listing get(Account account) {
+		return listings.get(account);
+	}
+
+	/** Tests whether a listing should be revalidated.
+	 * @param listing The listing
+	 * @return true if the listing is older than the time to live.
+	 */
+	boolean isStale(Listing listing) {
+		return System.currentTimeMillis()-listing.time>=timeToLive;
+	}
+
+	/** Remembers the listing of an account.
+	 * @param account The account
+	 * @param entries Its remote entries
+	 * @return true if the entries, or their metadata, are not the same as the previously remembered ones.
+	 */
+	boolean put(Account account, Collection<Entry> entries) {
+		Listing old = listings.put(account, new Listing(new ArrayList<Entry>(entries)));
+		if ((old==null) || (old.entries.size()!=entries.size())) {
+			return true;
+		}
+		Map<Entry, Entry> previous = new HashMap<Entry, Entry>();
+		for (Entry entry : old.entries) {
+			previous.put(entry, entry);
+		}
+		for (Entry entry : entries) {
+			// Entries are equal if they have the same name, even if their metadata differs
+			Entry oldEntry = previous.get(entry);
+			if ((oldEntry==null) || !NullUtils.areEquals(oldEntry.getInfo(), entry.getInfo())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Forgets the listing of an account.
+	 * @param account The account
+	 */
+	void remove(Account account) {
+		listings.remove(account);
+	}
+}
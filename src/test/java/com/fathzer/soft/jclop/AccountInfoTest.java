@@ -0,0 +1,131 @@
+package com.fathzer.soft.jclop;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccountInfoTest {
+	private static final String INFO_FILENAME = ".info"; //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MockCloudService service;
+
+	@Before
+	public void setUp() throws IOException {
+		service = new MockCloudService(folder.getRoot());
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		File file = new File(folder.getRoot(), INFO_FILENAME);
+		new AccountInfo("Account", "token").write(file, service); //$NON-NLS-1$ //$NON-NLS-2$
+		AccountInfo info = AccountInfo.read(file, service);
+		assertEquals("Account", info.getDisplayName()); //$NON-NLS-1$
+		assertEquals("token", info.getConnectionData()); //$NON-NLS-1$
+		assertFalse(info.isLegacy());
+
+		new AccountInfo(null, null).write(file, service);
+		info = AccountInfo.read(file, service);
+		assertNull(info.getDisplayName());
+		assertNull(info.getConnectionData());
+	}
+
+	@Test
+	public void testLegacy() throws IOException {
+		File file = writeLegacy("id2", "Legacy account", "token"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		AccountInfo info = AccountInfo.read(file, service);
+		assertTrue(info.isLegacy());
+		assertEquals("Legacy account", info.getDisplayName()); //$NON-NLS-1$
+		assertEquals("token", info.getConnectionData()); //$NON-NLS-1$
+
+		// The account is loaded and its file is written again in the current format
+		service = new MockCloudService(folder.getRoot());
+		Account account = service.getAccount("id2"); //$NON-NLS-1$
+		assertEquals("Legacy account", account.getDisplayName()); //$NON-NLS-1$
+		assertEquals("token", account.getConnectionData()); //$NON-NLS-1$
+		assertFalse(AccountInfo.read(file, service).isLegacy());
+		service = new MockCloudService(folder.getRoot());
+		assertEquals("Legacy account", service.getAccount("id2").getDisplayName()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testLegacyClassRejected() throws IOException {
+		File file = writeLegacy("id2", "Legacy account", new Date()); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			AccountInfo.read(file, service);
+			fail();
+		} catch (InvalidClassException e) {
+			// Date is not an allowed class
+		}
+		// The account is ignored
+		service = new MockCloudService(folder.getRoot());
+		assertNull(service.getAccount("id2")); //$NON-NLS-1$
+
+		// Unless the service allows it
+		service = new MockCloudService(folder.getRoot()) {
+			@Override
+			protected boolean isLegacyConnectionDataClass(String className) {
+				return Date.class.getName().equals(className);
+			}
+		};
+		assertTrue(AccountInfo.read(file, service).getConnectionData() instanceof Date);
+	}
+
+	@Test
+	public void testFailedMigration() throws IOException {
+		File file = writeLegacy("id2", "Legacy account", "token"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		// The service is unable to encode the connection data
+		service = new MockCloudService(folder.getRoot()) {
+			@Override
+			protected String encodeConnectionData(Serializable connectionData) {
+				throw new IllegalStateException();
+			}
+		};
+		Account account = service.getAccount("id2"); //$NON-NLS-1$
+		assertEquals("token", account.getConnectionData()); //$NON-NLS-1$
+		assertFalse(account.isSerialized());
+		// The legacy file is unchanged, the migration will be done later
+		assertTrue(AccountInfo.read(file, service).isLegacy());
+		assertFalse(new File(file.getParent(), INFO_FILENAME+".tmp").exists()); //$NON-NLS-1$
+		service = new MockCloudService(folder.getRoot());
+		assertEquals("token", service.getAccount("id2").getConnectionData()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(AccountInfo.read(file, service).isLegacy());
+	}
+
+	@Test
+	public void testCrashDuringRename() throws IOException {
+		File file = new File(folder.getRoot(), INFO_FILENAME);
+		new AccountInfo("Account", "token").write(file, service); //$NON-NLS-1$ //$NON-NLS-2$
+		// The previous file was deleted, the complete temporary file was not renamed
+		assertTrue(file.renameTo(new File(folder.getRoot(), INFO_FILENAME+".tmp"))); //$NON-NLS-1$
+		assertEquals("Account", AccountInfo.read(file, service).getDisplayName()); //$NON-NLS-1$
+		assertTrue(file.isFile());
+	}
+
+	private File writeLegacy(String id, String displayName, Serializable connectionData) throws IOException {
+		File accountFolder = new File(new File(folder.getRoot(), MockCloudService.SCHEME), id);
+		assertTrue(accountFolder.mkdirs());
+		File file = new File(accountFolder, INFO_FILENAME);
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+		try {
+			out.writeObject(displayName);
+			out.writeObject(connectionData);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+}
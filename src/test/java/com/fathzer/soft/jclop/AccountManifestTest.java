@@ -0,0 +1,154 @@
+package com.fathzer.soft.jclop;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccountManifestTest {
+	private static final String ACCOUNT_ID = "id1"; //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File accountFolder;
+	private File data;
+
+	@Before
+	public void setUp() throws IOException {
+		accountFolder = folder.newFolder("account"); //$NON-NLS-1$
+		data = folder.newFile("data"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testJournal() throws IOException {
+		AccountManifest manifest = new AccountManifest(accountFolder);
+		manifest.put("a", data); //$NON-NLS-1$
+		manifest.save();
+		manifest.put("b", data); //$NON-NLS-1$
+		manifest.setDirty("c"); //$NON-NLS-1$
+		manifest.remove("a"); //$NON-NLS-1$
+		assertTrue(new File(accountFolder, AccountManifest.JOURNAL_NAME).isFile());
+
+		AccountManifest read = AccountManifest.read(accountFolder);
+		assertEquals(names("b", "c"), new HashSet<String>(read.getNames())); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(read.get("b").isDirty()); //$NON-NLS-1$
+		assertEquals(data.getName(), read.get("b").getFileName()); //$NON-NLS-1$
+		assertTrue(read.get("c").isDirty()); //$NON-NLS-1$
+
+		// A record truncated by a crash is ignored
+		truncate(new File(accountFolder, AccountManifest.JOURNAL_NAME), 3);
+		read = AccountManifest.read(accountFolder);
+		assertEquals(names("a", "b", "c"), new HashSet<String>(read.getNames())); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		// The manifest was written again, so new changes are not lost
+		read.remove("c"); //$NON-NLS-1$
+		assertEquals(names("a", "b"), new HashSet<String>(AccountManifest.read(accountFolder).getNames())); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testCompaction() {
+		AccountManifest manifest = new AccountManifest(accountFolder);
+		manifest.save();
+		File journal = new File(accountFolder, AccountManifest.JOURNAL_NAME);
+		long maxLength = 0;
+		for (int i = 0; i < 1000; i++) {
+			manifest.setDirty("entry"+(i%10)); //$NON-NLS-1$
+			manifest.put("entry"+(i%10), data); //$NON-NLS-1$
+			maxLength = Math.max(maxLength, journal.length());
+		}
+		// The journal never grows beyond the compaction threshold
+		assertTrue(maxLength<100*32);
+		assertEquals(10, AccountManifest.read(accountFolder).getNames().size());
+	}
+
+	@Test
+	public void testPreviousVersion() throws IOException {
+		MockCloudService service = new MockCloudService(folder.getRoot());
+		Account account = service.newAccount(ACCOUNT_ID, "Account", "token"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < 5; i++) {
+			service.putRemote(ACCOUNT_ID, "entry"+i, new byte[i]); //$NON-NLS-1$
+			service.synchronize(service.getURI(new Entry(account, "entry"+i)), null, null); //$NON-NLS-1$
+		}
+		File manifestFolder = service.getLocalFile(service.getURI(new Entry(account, "entry0"))).getParentFile().getParentFile(); //$NON-NLS-1$
+		File manifestFile = new File(manifestFolder, AccountManifest.FILE_NAME);
+		// A manifest in the first format, which recorded no entry
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(manifestFile));
+		try {
+			out.writeInt(1);
+			out.writeInt(0);
+		} finally {
+			out.close();
+		}
+		assertNull(AccountManifest.read(manifestFolder));
+
+		service = new MockCloudService(folder.getRoot());
+		service.setAccountManifestEnabled(true);
+		assertEquals(5, service.getAccount(ACCOUNT_ID).getLocalEntries().size());
+		// The manifest was rebuilt in the current format
+		DataInputStream in = new DataInputStream(new FileInputStream(manifestFile));
+		try {
+			assertEquals(AccountManifest.VERSION, in.readInt());
+		} finally {
+			in.close();
+		}
+		assertEquals(5, AccountManifest.read(manifestFolder).getNames().size());
+	}
+
+	@Test
+	public void testCrashAfterWrite() throws IOException {
+		MockCloudService service = new MockCloudService(folder.getRoot());
+		service.setAccountManifestEnabled(true);
+		Account account = service.newAccount(ACCOUNT_ID, "Account", "token"); //$NON-NLS-1$ //$NON-NLS-2$
+		URI uri = service.getURI(new Entry(account, "entry")); //$NON-NLS-1$
+		service.putRemote(ACCOUNT_ID, "entry", new byte[10]); //$NON-NLS-1$
+		service.synchronize(uri, null, null);
+		assertEquals(1, account.getLocalEntries().size());
+
+		// The cache is written, then the application crashes before the written file is recorded
+		OutputStream stream = new FileOutputStream(service.getLocalFileForWriting(uri));
+		try {
+			stream.write(1);
+		} finally {
+			stream.close();
+		}
+		service = new MockCloudService(folder.getRoot());
+		service.setAccountManifestEnabled(true);
+		account = service.getAccount(ACCOUNT_ID);
+		uri = service.getURI(new Entry(account, "entry")); //$NON-NLS-1$
+		assertFalse(service.isSynchronized(uri));
+		Entry entry = account.getLocalEntries().iterator().next();
+		assertEquals(1, entry.getInfo().getSize());
+		assertFalse(entry.getInfo().isSynchronized());
+	}
+
+	private static Set<String> names(String... names) {
+		Set<String> result = new HashSet<String>();
+		for (String name : names) {
+			result.add(name);
+		}
+		return result;
+	}
+
+	private static void truncate(File file, int count) throws IOException {
+		RandomAccessFile random = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			random.setLength(random.length()-count);
+		} finally {
+			random.close();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.fathzer.soft.jclop;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeltaTest {
+	private static final int BLOCK_SIZE = 32;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRollingChecksum() {
+		byte[] data = random(1000, 1);
+		int length = 50;
+		RollingChecksum checksum = new RollingChecksum();
+		checksum.reset(data, 0, length);
+		for (int i = 1; i+length <= data.length; i++) {
+			checksum.roll(data[i-1], data[i+length-1]);
+			assertEquals(RollingChecksum.compute(data, i, length), checksum.getValue());
+		}
+		// Remove the bytes at the end of the data
+		for (int i = data.length-length+1; i < data.length; i++) {
+			checksum.remove(data[i-1]);
+			assertEquals(RollingChecksum.compute(data, i, data.length-i), checksum.getValue());
+		}
+	}
+
+	@Test
+	public void testSignature() throws IOException {
+		File file = write("old", random(1000, 1));
+		BlockSignature signature = BlockSignature.compute(file, "rev", BLOCK_SIZE); //$NON-NLS-1$
+		File signatureFile = new File(folder.getRoot(), "signature"); //$NON-NLS-1$
+		signature.write(signatureFile);
+		BlockSignature read = BlockSignature.read(signatureFile);
+		assertEquals("rev", read.getRevision()); //$NON-NLS-1$
+		assertEquals(BLOCK_SIZE, read.getBlockSize());
+		assertEquals(1000, read.getLength());
+		// The signature read is able to find the blocks of the file
+		assertEquals(0, Delta.compute(read, file).getDataLength());
+		assertNull(BlockSignature.read(new File(folder.getRoot(), "missing"))); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testUnchanged() throws IOException {
+		byte[] data = random(1000, 1);
+		Delta delta = compute(data, data);
+		assertEquals(0, delta.getDataLength());
+		assertEquals(data.length, delta.getLength());
+		assertEquals(1, delta.getInstructions().size());
+		assertArrayEquals(data, apply(data, delta));
+	}
+
+	@Test
+	public void testChanges() throws IOException {
+		byte[] old = random(1000, 1);
+
+		// Modified byte
+		byte[] data = old.clone();
+		data[500] = (byte) ~data[500];
+		Delta delta = compute(old, data);
+		assertEquals(BLOCK_SIZE, delta.getDataLength());
+		assertArrayEquals(data, apply(old, delta));
+
+		// Inserted bytes, the following blocks are found at their new position
+		data = concat(old, 0, 100, random(7, 2), 0, 7, old, 100, old.length);
+		delta = compute(old, data);
+		assertTrue(delta.getDataLength()<2*BLOCK_SIZE);
+		assertArrayEquals(data, apply(old, delta));
+
+		// Deleted bytes and a new end
+		data = concat(old, 0, 300, old, 600, 1000, random(50, 3), 0, 50);
+		delta = compute(old, data);
+		assertTrue(delta.getDataLength()<50+2*BLOCK_SIZE);
+		assertArrayEquals(data, apply(old, delta));
+
+		// Completely different files and empty files
+		data = random(700, 4);
+		assertArrayEquals(data, apply(old, compute(old, data)));
+		assertArrayEquals(new byte[0], apply(old, compute(old, new byte[0])));
+		assertArrayEquals(data, apply(new byte[0], compute(new byte[0], data)));
+	}
+
+	private Delta compute(byte[] old, byte[] data) throws IOException {
+		BlockSignature signature = BlockSignature.compute(write("old", old), "rev", BLOCK_SIZE); //$NON-NLS-1$ //$NON-NLS-2$
+		Delta delta = Delta.compute(signature, write("new", data)); //$NON-NLS-1$
+		assertEquals(data.length, delta.getLength());
+		return delta;
+	}
+
+	/** Rebuilds the new version of a file, as a remote service would do. */
+	private static byte[] apply(byte[] old, Delta delta) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RandomAccessFile file = new RandomAccessFile(delta.getFile(), "r"); //$NON-NLS-1$
+		try {
+			long position = 0;
+			long inserted = 0;
+			for (Delta.Instruction instruction : delta.getInstructions()) {
+				byte[] range = new byte[(int) instruction.getLength()];
+				if (instruction.isCopy()) {
+					System.arraycopy(old, (int) instruction.getOffset(), range, 0, range.length);
+				} else {
+					assertEquals(position, instruction.getOffset());
+					file.seek(instruction.getOffset());
+					file.readFully(range);
+					inserted += range.length;
+				}
+				out.write(range);
+				position += range.length;
+			}
+			assertEquals(delta.getDataLength(), inserted);
+		} finally {
+			file.close();
+		}
+		return out.toByteArray();
+	}
+
+	private File write(String name, byte[] data) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static byte[] random(int length, long seed) {
+		byte[] result = new byte[length];
+		new Random(seed).nextBytes(result);
+		return result;
+	}
+
+	/** Concatenates ranges of arrays.
+	 * @param ranges A list of (array, start, end) triples
+	 */
+	private static byte[] concat(Object... ranges) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int i = 0; i < ranges.length; i += 3) {
+			int start = (Integer) ranges[i+1];
+			out.write((byte[]) ranges[i], start, (Integer) ranges[i+2]-start);
+		}
+		return out.toByteArray();
+	}
+}
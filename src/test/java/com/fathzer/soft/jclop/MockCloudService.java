@@ -0,0 +1,669 @@
+package com.fathzer.soft.jclop;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fathzer.soft.jclop.swing.MessagePack;
+
+/** An in-memory service that simulates a cloud provider.
+ * <br>It allows to test and benchmark the synchronization without any network. The remote files are stored in memory,
+ * and the service can simulate:<ul>
+ * <li>The latency of the provider (see {@link #setLatency(long)}).</li>
+ * <li>A limited bandwidth (see {@link #setBandwidth(long)}).</li>
+ * <li>A limited space (see {@link #setQuota(long)}).</li>
+ * <li>Listings returned by pages (see {@link #setPageSize(int)}).</li>
+ * <li>Chunked transfers (see {@link #setChunkedTransferSupported(boolean)}) and patches (see {@link #setPatchSupported(boolean)}).</li>
+ * <li>Errors, thrown at a given call of an operation (see {@link #scheduleFailure(Operation, int, JClopException)}).</li>
+ * <li>Modifications made by another client during a given call of an operation
+ * (see {@link #scheduleModification(Operation, int, String, String, byte[])}).</li>
+ * </ul>
+ * The calls of each operation are counted from the creation of the service (or the last {@link #reset()}), so a schedule
+ * is fully deterministic.
+ * <br>Each account is identified by its id, its connection data is an opaque String.
+ */
+public class MockCloudService extends Service {
+	/** The scheme of this service's URIs. */
+	public static final String SCHEME = "mock"; //$NON-NLS-1$
+	/** The size of the blocks transfered between two bandwidth checks. */
+	private static final int BLOCK_SIZE = 8*1024;
+
+	/** The remote operations. */
+	public enum Operation {
+		/** Listing the remote entries of an account. */
+		LIST,
+		/** Getting the remote revision of an entry. */
+		REVISION,
+		/** Downloading an entry. */
+		DOWNLOAD,
+		/** Uploading an entry. */
+		UPLOAD
+	}
+
+	/** A remote file. */
+	private static final class Blob {
+		private final byte[] data;
+		private final String revision;
+
+		private Blob(byte[] data, String revision) {
+			this.data = data;
+			this.revision = revision;
+		}
+	}
+
+	/** A chunked upload in progress. */
+	private static final class Session {
+		private final String accountId;
+		private final String name;
+		private final byte[] data;
+		private int received;
+
+		private Session(String accountId, String name, int length) {
+			this.accountId = accountId;
+			this.name = name;
+			this.data = new byte[length];
+		}
+	}
+
+	/** A modification of a remote file made by another client. */
+	private static final class Modification {
+		private final String accountId;
+		private final String name;
+		private final byte[] data;
+
+		private Modification(String accountId, String name, byte[] data) {
+			this.accountId = accountId;
+			this.name = name;
+			this.data = data;
+		}
+	}
+
+	private final Map<String, Map<String, Blob>> store;
+	private final AtomicLong revisions;
+	private final Map<Operation, AtomicInteger> calls;
+	private final Map<Operation, Map<Integer, JClopException>> failures;
+	private final Map<Operation, Map<Integer, List<Modification>>> modifications;
+	private final Map<String, Session> sessions;
+	private volatile long latency;
+	private volatile long bandwidth;
+	private volatile long quota;
+	private volatile int pageSize;
+	private volatile boolean conditionalDownloadSupported;
+	private volatile boolean chunkedTransferSupported;
+	private volatile boolean patchSupported;
+
+	/** Constructor.
+	 * <br>By default, there's no latency, no bandwidth limit, no quota, conditional downloads are supported, chunked transfers
+	 * and patches are not.
+	 * @param root The root folder of the services (the place where all accounts of all services are cached).
+	 * @throws IOException If an error occurs while accessing to the local cache
+	 * @see Service#Service(File, boolean)
+	 */
+	public MockCloudService(File root) throws IOException {
+		super(root, false);
+		this.store = new HashMap<String, Map<String, Blob>>();
+		this.revisions = new AtomicLong();
+		this.calls = new EnumMap<Operation, AtomicInteger>(Operation.class);
+		this.failures = new EnumMap<Operation, Map<Integer, JClopException>>(Operation.class);
+		this.modifications = new EnumMap<Operation, Map<Integer, List<Modification>>>(Operation.class);
+		this.sessions = new HashMap<String, Session>();
+		for (Operation operation : Operation.values()) {
+			calls.put(operation, new AtomicInteger());
+			failures.put(operation, new HashMap<Integer, JClopException>());
+			modifications.put(operation, new HashMap<Integer, List<Modification>>());
+		}
+		this.quota = Long.MAX_VALUE;
+		this.conditionalDownloadSupported = true;
+	}
+
+	/** Sets the latency of the service.
+	 * @param latency The time, in ms, spent at the beginning of every remote operation.
+	 */
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+	/** Sets the bandwidth of the service.
+	 * @param bandwidth The maximum number of bytes transfered per second, or 0 for no limit.
+	 */
+	public void setBandwidth(long bandwidth) {
+		this.bandwidth = bandwidth;
+	}
+
+	/** Sets the space available for each account.
+	 * <br>An upload that would exceed this space fails with a {@link NoSpaceRemainingException}.
+	 * @param quota A number of bytes.
+	 */
+	public void setQuota(long quota) {
+		this.quota = quota;
+	}
+
+	/** Sets the number of entries returned by each page of a listing.
+	 * <br>The latency is spent before each page.
+	 * @param pageSize a number of entries, 0 to return all the entries in a single page (this is the default).
+	 * @see Service#getRemoteEntries(Account, Cancellable, RemoteEntriesListener)
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/** Sets whether this service supports conditional downloads.
+	 * <br>This allows to test both branches of the download retry loop.
+	 * @param supported true if conditional downloads are supported.
+	 * @see Service#isConditionalDownloadSupported()
+	 */
+	public void setConditionalDownloadSupported(boolean supported) {
+		this.conditionalDownloadSupported = supported;
+	}
+
+	/** Sets whether this service supports chunked transfers.
+	 * <br>Each downloaded chunk is a call of {@link Operation#DOWNLOAD}. Each uploaded chunk, and the start of each upload session,
+	 * is a call of {@link Operation#UPLOAD}. This allows to interrupt a transfer at a given chunk.
+	 * @param supported true if chunked transfers are supported.
+	 * @see Service#isChunkedTransferSupported()
+	 */
+	public void setChunkedTransferSupported(boolean supported) {
+		this.chunkedTransferSupported = supported;
+	}
+
+	/** Sets whether this service supports patches.
+	 * <br>Each patch is a call of {@link Operation#UPLOAD}.
+	 * @param supported true if patches are supported.
+	 * @see Service#isPatchSupported()
+	 */
+	public void setPatchSupported(boolean supported) {
+		this.patchSupported = supported;
+	}
+
+	/** Schedules an error.
+	 * @param operation The failing operation
+	 * @param call The number of the call that fails (1 is the first call since the service creation or the last {@link #reset()}).
+	 * @param exception The exception thrown by this call (usually an {@link UnreachableHostException}, a {@link HostErrorException}
+	 * or a {@link NoSpaceRemainingException}).
+	 */
+	public void scheduleFailure(Operation operation, int call, JClopException exception) {
+		synchronized (failures) {
+			failures.get(operation).put(call, exception);
+		}
+	}
+
+	/** Schedules a modification of a remote file made by another client.
+	 * <br>The modification is applied in the middle of the transfer for {@link Operation#DOWNLOAD}, at the beginning of the call
+	 * for other operations.
+	 * @param operation The operation during which the file is modified
+	 * @param call The number of the call (1 is the first call since the service creation or the last {@link #reset()}).
+	 * @param accountId The account's id
+	 * @param name The entry's display name
+	 * @param data The new content of the file, or null to delete it
+	 */
+	public void scheduleModification(Operation operation, int call, String accountId, String name, byte[] data) {
+		synchronized (modifications) {
+			Map<Integer, List<Modification>> scheduled = modifications.get(operation);
+			List<Modification> list = scheduled.get(call);
+			if (list==null) {
+				list = new ArrayList<Modification>();
+				scheduled.put(call, list);
+			}
+			list.add(new Modification(accountId, name, data));
+		}
+	}
+
+	/** Gets the number of calls of an operation.
+	 * @param operation The operation
+	 * @return the number of calls since the service creation or the last {@link #reset()}.
+	 */
+	public int getCallCount(Operation operation) {
+		return calls.get(operation).get();
+	}
+
+	/** Resets the call counters and clears the scheduled errors and modifications.
+	 * <br>The remote files are kept.
+	 */
+	public void reset() {
+		synchronized (failures) {
+			for (Operation operation : Operation.values()) {
+				calls.get(operation).set(0);
+				failures.get(operation).clear();
+			}
+		}
+		synchronized (modifications) {
+			for (Map<Integer, List<Modification>> scheduled : modifications.values()) {
+				scheduled.clear();
+			}
+		}
+	}
+
+	/** Writes a remote file, as another client would do.
+	 * @param accountId The account's id
+	 * @param name The entry's display name
+	 * @param data The new content of the file, or null to delete it
+	 * @return The new revision of the file, or null if it was deleted
+	 */
+	public String putRemote(String accountId, String name, byte[] data) {
+		synchronized (store) {
+			Map<String, Blob> files = store.get(accountId);
+			if (files==null) {
+				files = new HashMap<String, Blob>();
+				store.put(accountId, files);
+			}
+			if (data==null) {
+				files.remove(name);
+				return null;
+			}
+			String revision = Long.toString(revisions.incrementAndGet());
+			files.put(name, new Blob(data.clone(), revision));
+			return revision;
+		}
+	}
+
+	/** Reads a remote file.
+	 * <br>This method does not simulate any latency or error.
+	 * @param accountId The account's id
+	 * @param name The entry's display name
+	 * @return The content of the file or null if it does not exist
+	 */
+	public byte[] getRemote(String accountId, String name) {
+		Blob blob = getBlob(accountId, name);
+		return blob==null ? null : blob.data.clone();
+	}
+
+	private Blob getBlob(String accountId, String name) {
+		synchronized (store) {
+			Map<String, Blob> files = store.get(accountId);
+			return files==null ? null : files.get(name);
+		}
+	}
+
+	private long getUsed(String accountId) {
+		synchronized (store) {
+			Map<String, Blob> files = store.get(accountId);
+			long used = 0;
+			if (files!=null) {
+				for (Blob blob : files.values()) {
+					used += blob.data.length;
+				}
+			}
+			return used;
+		}
+	}
+
+	@Override
+	public String getScheme() {
+		return SCHEME;
+	}
+
+	@Override
+	public Entry getEntry(URI uri) {
+		// The URIs have the same format as the ones of DirectoryService
+		return DirectoryService.getEntry(this, uri);
+	}
+
+	@Override
+	public String getConnectionDataURIFragment(Serializable connectionData) {
+		try {
+			return URLEncoder.encode((String) connectionData, UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Serializable getConnectionData(String uriFragment) {
+		try {
+			return URLDecoder.decode(uriFragment, UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Collection<Entry> getRemoteEntries(Account account, Cancellable task) throws JClopException {
+		final Collection<Entry> result = new ArrayList<Entry>();
+		getRemoteEntries(account, task, new RemoteEntriesListener() {
+			@Override
+			public void entriesFound(Collection<Entry> entries) {
+				result.addAll(entries);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	protected void getRemoteEntries(Account account, Cancellable task, RemoteEntriesListener listener) throws JClopException {
+		apply(call(Operation.LIST));
+		List<Entry> entries = new ArrayList<Entry>();
+		synchronized (store) {
+			Map<String, Blob> files = store.get(account.getId());
+			if (files!=null) {
+				for (Map.Entry<String, Blob> file : files.entrySet()) {
+					Blob blob = file.getValue();
+					entries.add(new Entry(account, file.getKey(), new EntryInfo(blob.data.length, EntryInfo.UNKNOWN, blob.revision)));
+				}
+			}
+		}
+		int size = pageSize>0 ? pageSize : Math.max(1, entries.size());
+		for (int start = 0; start<entries.size(); start += size) {
+			if ((task!=null) && task.isCancelled()) {
+				return;
+			}
+			if (start>0) {
+				pause(latency);
+			}
+			listener.entriesFound(entries.subList(start, Math.min(start+size, entries.size())));
+		}
+		account.setQuota(quota);
+		account.setUsed(getUsed(account.getId()));
+	}
+
+	@Override
+	public String getRemoteRevision(URI uri) throws JClopException {
+		apply(call(Operation.REVISION));
+		Entry entry = getEntry(uri);
+		Blob blob = getBlob(entry.getAccount().getId(), entry.getDisplayName());
+		return blob==null ? null : blob.revision;
+	}
+
+	@Override
+	protected boolean isConditionalDownloadSupported() {
+		return conditionalDownloadSupported;
+	}
+
+	@Override
+	public boolean download(URI uri, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		return download(uri, null, Channels.newChannel(out), task, locale);
+	}
+
+	@Override
+	protected boolean download(URI uri, String revision, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		return download(uri, revision, Channels.newChannel(out), task, locale);
+	}
+
+	@Override
+	protected boolean download(URI uri, String revision, WritableByteChannel out, Cancellable task, Locale locale) throws JClopException, IOException {
+		List<Modification> concurrent = call(Operation.DOWNLOAD);
+		Entry entry = getEntry(uri);
+		Blob blob = getBlob(entry.getAccount().getId(), entry.getDisplayName());
+		if (blob==null) {
+			throw new HostErrorException(new IOException("Remote file not found: "+uri));
+		}
+		if (conditionalDownloadSupported && (revision!=null) && !revision.equals(blob.revision)) {
+			throw new RevisionChangedException();
+		}
+		if (task!=null) {
+			task.setPhase(getMessage(MessagePack.DOWNLOADING, locale), blob.data.length);
+		}
+		long start = System.currentTimeMillis();
+		for (int position = 0; position<blob.data.length; ) {
+			if ((task!=null) && task.isCancelled()) {
+				return false;
+			}
+			if ((concurrent!=null) && (position>=blob.data.length/2)) {
+				// Another client modifies the file while we are downloading it
+				apply(concurrent);
+				concurrent = null;
+			}
+			int count = Math.min(BLOCK_SIZE, blob.data.length-position);
+			ByteBuffer buffer = ByteBuffer.wrap(blob.data, position, count);
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			position += count;
+			throttle(start, position);
+			if (task!=null) {
+				task.reportProgress(position);
+			}
+		}
+		apply(concurrent);
+		if (conditionalDownloadSupported && (revision!=null) && !revision.equals(getBlob(entry.getAccount().getId(), entry.getDisplayName()).revision)) {
+			// The file was modified during the download
+			throw new RevisionChangedException();
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean isChunkedTransferSupported() {
+		return chunkedTransferSupported;
+	}
+
+	@Override
+	protected long downloadChunk(URI uri, String revision, long offset, int length, OutputStream out, Cancellable task, Locale locale) throws JClopException, IOException {
+		apply(call(Operation.DOWNLOAD));
+		Entry entry = getEntry(uri);
+		Blob blob = getBlob(entry.getAccount().getId(), entry.getDisplayName());
+		if (blob==null) {
+			throw new HostErrorException(new IOException("Remote file not found: "+uri));
+		}
+		if ((revision!=null) && !revision.equals(blob.revision)) {
+			throw new RevisionChangedException();
+		}
+		if ((task!=null) && task.isCancelled()) {
+			return -1;
+		}
+		int count = (int) Math.max(0, Math.min(length, blob.data.length-offset));
+		long start = System.currentTimeMillis();
+		out.write(blob.data, (int) offset, count);
+		throttle(start, count);
+		if (task!=null) {
+			task.reportProgress((int) (offset+count));
+		}
+		return count;
+	}
+
+	@Override
+	protected String startChunkedUpload(URI uri, long length) throws JClopException {
+		apply(call(Operation.UPLOAD));
+		Entry entry = getEntry(uri);
+		checkQuota(entry, length);
+		synchronized (sessions) {
+			String id = "session"+(sessions.size()+1)+"-"+revisions.incrementAndGet(); //$NON-NLS-1$ //$NON-NLS-2$
+			sessions.put(id, new Session(entry.getAccount().getId(), entry.getDisplayName(), (int) length));
+			return id;
+		}
+	}
+
+	@Override
+	protected long getChunkedUploadOffset(String session) throws JClopException {
+		synchronized (sessions) {
+			Session upload = sessions.get(session);
+			return upload==null ? -1 : upload.received;
+		}
+	}
+
+	@Override
+	protected long uploadChunk(String session, long offset, InputStream in, int length, Cancellable task, Locale locale) throws JClopException, IOException {
+		apply(call(Operation.UPLOAD));
+		Session upload;
+		synchronized (sessions) {
+			upload = sessions.get(session);
+		}
+		if ((upload==null) || (offset>upload.received)) {
+			throw new HostErrorException(new IOException("Invalid upload session: "+session));
+		}
+		if ((task!=null) && task.isCancelled()) {
+			return -1;
+		}
+		long start = System.currentTimeMillis();
+		for (int position = 0; position<length; ) {
+			int count = in.read(upload.data, (int) offset+position, length-position);
+			if (count<0) {
+				throw new IOException("Unexpected end of data");
+			}
+			position += count;
+		}
+		throttle(start, length);
+		synchronized (sessions) {
+			upload.received = Math.max(upload.received, (int) offset+length);
+			return upload.received;
+		}
+	}
+
+	@Override
+	protected void finishChunkedUpload(String session, URI uri, long length) throws JClopException {
+		Session upload;
+		synchronized (sessions) {
+			upload = sessions.remove(session);
+		}
+		if ((upload==null) || (upload.received!=length)) {
+			throw new HostErrorException(new IOException("Invalid upload session: "+session));
+		}
+		putRemote(upload.accountId, upload.name, upload.data);
+	}
+
+	@Override
+	protected boolean isPatchSupported() {
+		return patchSupported;
+	}
+
+	@Override
+	protected boolean uploadPatch(URI uri, String baseRevision, Delta delta, Cancellable task, Locale locale) throws JClopException, IOException {
+		apply(call(Operation.UPLOAD));
+		Entry entry = getEntry(uri);
+		Blob blob = getBlob(entry.getAccount().getId(), entry.getDisplayName());
+		if ((blob==null) || !blob.revision.equals(baseRevision)) {
+			throw new RevisionChangedException();
+		}
+		checkQuota(entry, delta.getLength());
+		byte[] data = new byte[(int) delta.getLength()];
+		int position = 0;
+		RandomAccessFile file = new RandomAccessFile(delta.getFile(), "r"); //$NON-NLS-1$
+		try {
+			for (Delta.Instruction instruction : delta.getInstructions()) {
+				if ((task!=null) && task.isCancelled()) {
+					return false;
+				}
+				if (instruction.isCopy()) {
+					System.arraycopy(blob.data, (int) instruction.getOffset(), data, position, (int) instruction.getLength());
+				} else {
+					file.seek(instruction.getOffset());
+					file.readFully(data, position, (int) instruction.getLength());
+				}
+				position += instruction.getLength();
+			}
+		} finally {
+			file.close();
+		}
+		putRemote(entry.getAccount().getId(), entry.getDisplayName(), data);
+		return true;
+	}
+
+	@Override
+	public boolean upload(InputStream in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		return upload(Channels.newChannel(in), length, uri, task, locale);
+	}
+
+	@Override
+	protected boolean upload(ReadableByteChannel in, long length, URI uri, Cancellable task, Locale locale) throws JClopException, IOException {
+		apply(call(Operation.UPLOAD));
+		Entry entry = getEntry(uri);
+		String accountId = entry.getAccount().getId();
+		checkQuota(entry, length);
+		if (task!=null) {
+			task.setPhase(getMessage(MessagePack.UPLOADING, locale), (int) length);
+		}
+		byte[] data = new byte[(int) length];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		long start = System.currentTimeMillis();
+		while (buffer.hasRemaining()) {
+			if ((task!=null) && task.isCancelled()) {
+				return false;
+			}
+			buffer.limit(Math.min(buffer.position()+BLOCK_SIZE, data.length));
+			if (in.read(buffer)<0) {
+				throw new IOException("Unexpected end of data");
+			}
+			buffer.limit(data.length);
+			throttle(start, buffer.position());
+			if (task!=null) {
+				task.reportProgress(buffer.position());
+			}
+		}
+		putRemote(accountId, entry.getDisplayName(), data);
+		return true;
+	}
+
+	/** Checks that a remote file can be written without exceeding the quota.
+	 * @param entry The entry that is written
+	 * @param length The new length of the entry
+	 * @throws NoSpaceRemainingException if the quota would be exceeded
+	 */
+	private void checkQuota(Entry entry, long length) throws NoSpaceRemainingException {
+		String accountId = entry.getAccount().getId();
+		Blob previous = getBlob(accountId, entry.getDisplayName());
+		if (getUsed(accountId)-(previous==null?0:previous.data.length)+length>quota) {
+			throw new NoSpaceRemainingException(null);
+		}
+	}
+
+	/** Starts a remote call.
+	 * <br>This method counts the call, waits for the latency and throws the error scheduled for the call, if any.
+	 * @param operation The operation
+	 * @return The modifications scheduled for this call or null if there's none.
+	 * @throws JClopException The scheduled error
+	 */
+	private List<Modification> call(Operation operation) throws JClopException {
+		int call = calls.get(operation).incrementAndGet();
+		pause(latency);
+		JClopException failure;
+		synchronized (failures) {
+			failure = failures.get(operation).remove(call);
+		}
+		List<Modification> result;
+		synchronized (modifications) {
+			result = modifications.get(operation).remove(call);
+		}
+		if (failure!=null) {
+			throw failure;
+		}
+		return result;
+	}
+
+	private void apply(List<Modification> list) {
+		if (list!=null) {
+			for (Modification modification : list) {
+				putRemote(modification.accountId, modification.name, modification.data);
+			}
+		}
+	}
+
+	/** Waits until the transfer rate is below the bandwidth.
+	 * @param start The time the transfer started
+	 * @param transfered The number of bytes already transfered
+	 */
+	private void throttle(long start, long transfered) {
+		long max = bandwidth;
+		if (max>0) {
+			pause(start + transfered*1000/max - System.currentTimeMillis());
+		}
+	}
+
+	private static void pause(long delay) {
+		if (delay>0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package com.fathzer.soft.jclop;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fathzer.soft.jclop.MockCloudService.Operation;
+
+public class ServiceTest {
+	private static final String ACCOUNT_ID = "id1"; //$NON-NLS-1$
+	private static final String NAME = "entry"; //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MockCloudService service;
+	private URI uri;
+
+	@Before
+	public void setUp() throws IOException {
+		service = new MockCloudService(folder.getRoot());
+		service.setDownloadRetryPolicy(3, 0);
+		Account account = service.newAccount(ACCOUNT_ID, "Account", "token"); //$NON-NLS-1$ //$NON-NLS-2$
+		uri = service.getURI(new Entry(account, NAME));
+	}
+
+	@Test
+	public void testDownload() throws Exception {
+		service.putRemote(ACCOUNT_ID, NAME, bytes(10));
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(10), readLocal());
+		assertTrue(service.isSynchronized(uri));
+		assertEquals(1, service.getCallCount(Operation.DOWNLOAD));
+		assertEquals(0, service.getCallCount(Operation.UPLOAD));
+
+		// Nothing changed, nothing is transfered
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertEquals(1, service.getCallCount(Operation.DOWNLOAD));
+		assertEquals(0, service.getCallCount(Operation.UPLOAD));
+
+		// The remote file is modified by another client
+		service.putRemote(ACCOUNT_ID, NAME, bytes(20));
+		service.setRemoteRevisionTTL(0);
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(20), readLocal());
+		assertEquals(2, service.getCallCount(Operation.DOWNLOAD));
+	}
+
+	@Test
+	public void testUpload() throws Exception {
+		writeLocal(bytes(10));
+		assertFalse(service.isSynchronized(uri));
+		assertNull(service.getLocalRevision(uri));
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(10), service.getRemote(ACCOUNT_ID, NAME));
+		assertTrue(service.isSynchronized(uri));
+		assertNotNull(service.getLocalRevision(uri));
+
+		// The cache is modified
+		writeLocal(bytes(15));
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(15), service.getRemote(ACCOUNT_ID, NAME));
+		assertEquals(2, service.getCallCount(Operation.UPLOAD));
+		assertEquals(0, service.getCallCount(Operation.DOWNLOAD));
+	}
+
+	@Test
+	public void testConflict() throws Exception {
+		service.putRemote(ACCOUNT_ID, NAME, bytes(10));
+		service.synchronize(uri, null, null);
+		// Both the cache and the remote file are modified
+		writeLocal(bytes(12));
+		service.putRemote(ACCOUNT_ID, NAME, bytes(14));
+		service.setRemoteRevisionTTL(0);
+		assertEquals(SynchronizationState.CONFLICT, service.synchronize(uri, null, null));
+		// Nothing is overwritten
+		assertArrayEquals(bytes(12), readLocal());
+		assertArrayEquals(bytes(14), service.getRemote(ACCOUNT_ID, NAME));
+		assertEquals(0, service.getCallCount(Operation.UPLOAD));
+	}
+
+	@Test
+	public void testRemoteDeleted() throws Exception {
+		service.putRemote(ACCOUNT_ID, NAME, bytes(10));
+		service.synchronize(uri, null, null);
+		service.putRemote(ACCOUNT_ID, NAME, null);
+		service.setRemoteRevisionTTL(0);
+		assertEquals(SynchronizationState.REMOTE_DELETED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(10), readLocal());
+	}
+
+	@Test (expected=FileNotFoundException.class)
+	public void testNotFound() throws Exception {
+		service.synchronize(uri, null, null);
+	}
+
+	@Test
+	public void testListedRevisions() throws Exception {
+		service.putRemote(ACCOUNT_ID, NAME, bytes(10));
+		service.putRemote(ACCOUNT_ID, "other", bytes(5)); //$NON-NLS-1$
+		Account account = service.getAccount(ACCOUNT_ID);
+		// A direct call to the service's implementation does not remember the revisions
+		service.getRemoteEntries(account, null);
+		service.synchronize(uri, null, null);
+		assertEquals(1, service.getCallCount(Operation.REVISION));
+
+		// The account's listing remembers them
+		service.putRemote(ACCOUNT_ID, NAME, bytes(20));
+		assertEquals(2, account.getRemoteEntries(null).size());
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(service.getURI(new Entry(account, "other")), null, null)); //$NON-NLS-1$
+		assertEquals(1, service.getCallCount(Operation.REVISION));
+		assertArrayEquals(bytes(20), readLocal());
+	}
+
+	@Test
+	public void testRevisionChangedDuringDownload() throws Exception {
+		service.putRemote(ACCOUNT_ID, NAME, bytes(10));
+		service.scheduleModification(Operation.DOWNLOAD, 1, ACCOUNT_ID, NAME, bytes(30));
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		// The download was retried and the cache contains the last revision
+		assertEquals(2, service.getCallCount(Operation.DOWNLOAD));
+		assertArrayEquals(bytes(30), readLocal());
+		assertTrue(service.isSynchronized(uri));
+		service.setRemoteRevisionTTL(0);
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertEquals(2, service.getCallCount(Operation.DOWNLOAD));
+	}
+
+	@Test
+	public void testChunkedDownloadResume() throws Exception {
+		service.setChunkedTransferSupported(true);
+		service.setChunkSize(4);
+		service.putRemote(ACCOUNT_ID, NAME, bytes(10));
+		service.scheduleFailure(Operation.DOWNLOAD, 2, new UnreachableHostException(new IOException()));
+		try {
+			service.synchronize(uri, null, null);
+			fail();
+		} catch (UnreachableHostException e) {
+			// The second chunk failed
+		}
+		assertFalse(service.getLocalFile(uri).exists());
+		service.reset();
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(10), readLocal());
+		// The first chunk was not downloaded again
+		assertEquals(2, service.getCallCount(Operation.DOWNLOAD));
+	}
+
+	@Test
+	public void testChunkedUploadResume() throws Exception {
+		service.setChunkedTransferSupported(true);
+		service.setChunkSize(4);
+		writeLocal(bytes(10));
+		// Call 1 starts the session, call 2 uploads the first chunk
+		service.scheduleFailure(Operation.UPLOAD, 3, new UnreachableHostException(new IOException()));
+		try {
+			service.synchronize(uri, null, null);
+			fail();
+		} catch (UnreachableHostException e) {
+			// The second chunk failed
+		}
+		assertNull(service.getRemote(ACCOUNT_ID, NAME));
+		service.reset();
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(bytes(10), service.getRemote(ACCOUNT_ID, NAME));
+		// The session was resumed after the first chunk
+		assertEquals(2, service.getCallCount(Operation.UPLOAD));
+	}
+
+	@Test
+	public void testPatch() throws Exception {
+		service.setPatchSupported(true);
+		service.setDeltaBlockSize(16);
+		ServiceStatistics statistics = new ServiceStatistics();
+		service.setMetrics(statistics);
+		service.putRemote(ACCOUNT_ID, NAME, bytes(1024));
+		service.synchronize(uri, null, null);
+		byte[] modified = bytes(1024);
+		modified[500] = (byte) ~modified[500];
+		writeLocal(modified);
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+		assertArrayEquals(modified, service.getRemote(ACCOUNT_ID, NAME));
+		assertTrue(service.isSynchronized(uri));
+		// Only the modified block was sent
+		assertEquals(16, statistics.getBytesUploaded());
+
+		// The remote file is modified by another client when the patch is sent: the conflict is reported
+		modified[10] = (byte) ~modified[10];
+		writeLocal(modified);
+		service.reset();
+		service.scheduleModification(Operation.UPLOAD, 1, ACCOUNT_ID, NAME, bytes(8));
+		assertEquals(SynchronizationState.CONFLICT, service.synchronize(uri, null, null));
+		// The changes of the other client are kept, and so is the cache
+		assertArrayEquals(bytes(8), service.getRemote(ACCOUNT_ID, NAME));
+		assertArrayEquals(modified, readLocal());
+		assertEquals(1, service.getCallCount(Operation.UPLOAD));
+
+		// Replacing the remote file to resolve the conflict uploads the whole file
+		assertTrue(service.upload(uri, null, null));
+		assertArrayEquals(modified, service.getRemote(ACCOUNT_ID, NAME));
+		assertEquals(2, service.getCallCount(Operation.UPLOAD));
+		assertEquals(SynchronizationState.SYNCHRONIZED, service.synchronize(uri, null, null));
+	}
+
+	private static byte[] bytes(int length) {
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = (byte) (31*i+length);
+		}
+		return result;
+	}
+
+	private void writeLocal(byte[] data) throws IOException {
+		OutputStream out = new FileOutputStream(service.getLocalFileForWriting(uri));
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+	}
+
+	private byte[] readLocal() throws IOException {
+		File file = service.getLocalFile(uri);
+		byte[] result = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read<result.length) {
+				read += in.read(result, read, result.length-read);
+			}
+		} finally {
+			in.close();
+		}
+		return result;
+	}
+}
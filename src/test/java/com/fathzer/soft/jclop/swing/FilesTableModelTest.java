@@ -0,0 +1,120 @@
+package com.fathzer.soft.jclop.swing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Entry;
+import com.fathzer.soft.jclop.MockCloudService;
+
+public class FilesTableModelTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Account account;
+	private FilesTableModel model;
+	/** The events fired by the model, as (type, first row, last row) triples. */
+	private List<int[]> events;
+
+	@Before
+	public void setUp() throws IOException {
+		account = new MockCloudService(folder.getRoot()).newAccount("id1", "Account", "token"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		model = new FilesTableModel();
+		events = new ArrayList<int[]>();
+		model.addTableModelListener(new TableModelListener() {
+			@Override
+			public void tableChanged(TableModelEvent e) {
+				events.add(new int[]{e.getType(), e.getFirstRow(), e.getLastRow()});
+			}
+		});
+	}
+
+	@Test
+	public void testSetEntries() {
+		setEntries("b", "d", "f"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEvents(TableModelEvent.INSERT, 0, 2);
+
+		// Same entries, nothing is fired
+		setEntries("b", "d", "f"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEvents();
+
+		// Insertions at the beginning, in the middle and at the end
+		setEntries("a", "b", "c", "d", "e", "f", "g", "h"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+		assertEvents(TableModelEvent.INSERT, 0, 0, TableModelEvent.INSERT, 2, 2, TableModelEvent.INSERT, 4, 4, TableModelEvent.INSERT, 6, 7);
+
+		// Deletions and insertions mixed
+		setEntries("a", "d", "da", "h"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEvents(TableModelEvent.DELETE, 1, 2, TableModelEvent.INSERT, 2, 2, TableModelEvent.DELETE, 3, 5);
+
+		setEntries();
+		assertEvents(TableModelEvent.DELETE, 0, 3);
+	}
+
+	@Test
+	public void testManyChanges() {
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			names.add(String.format("%03d", i)); //$NON-NLS-1$
+		}
+		setEntries(names.toArray(new String[names.size()]));
+		events.clear();
+		// Remove one row out of two: too many runs, a single event is fired
+		for (int i = names.size()-1; i >= 0; i -= 2) {
+			names.remove(i);
+		}
+		setEntries(names.toArray(new String[names.size()]));
+		assertEquals(1, events.size());
+		assertEquals(TableModelEvent.UPDATE, events.get(0)[0]);
+		assertEquals(0, events.get(0)[1]);
+		assertEquals(Integer.MAX_VALUE, events.get(0)[2]);
+		assertEquals(50, model.getRowCount());
+	}
+
+	@Test
+	public void testIndexOf() {
+		setEntries("a", "b", "c"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(1, model.indexOf("b")); //$NON-NLS-1$
+		assertEquals(-1, model.indexOf("d")); //$NON-NLS-1$
+		assertEquals(2, model.indexOf(new Entry(account, "c"))); //$NON-NLS-1$
+		// The index is rebuilt when the entries change
+		setEntries("a", "c", "d"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(-1, model.indexOf("b")); //$NON-NLS-1$
+		assertEquals(2, model.indexOf("d")); //$NON-NLS-1$
+	}
+
+	private void setEntries(String... names) {
+		TreeSet<Entry> entries = new TreeSet<Entry>();
+		for (String name : names) {
+			entries.add(new Entry(account, name));
+		}
+		model.setEntries(new ArrayList<Entry>(entries));
+		assertEquals(entries.size(), model.getRowCount());
+		int row = 0;
+		for (Entry entry : entries) {
+			assertEquals(entry.getDisplayName(), model.getValueAt(row++, FilesTableModel.NAME_COLUMN));
+		}
+	}
+
+	private void assertEvents(int... expected) {
+		assertEquals(expected.length/3, events.size());
+		for (int i = 0; i < events.size(); i++) {
+			int[] event = events.get(i);
+			assertEquals("type of event "+i, expected[3*i], event[0]); //$NON-NLS-1$
+			assertEquals("first row of event "+i, expected[3*i+1], event[1]); //$NON-NLS-1$
+			assertEquals("last row of event "+i, expected[3*i+2], event[2]); //$NON-NLS-1$
+		}
+		events.clear();
+	}
+}
@@ -0,0 +1,88 @@
+package com.fathzer.soft.jclop.swing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fathzer.soft.jclop.Account;
+import com.fathzer.soft.jclop.Entry;
+import com.fathzer.soft.jclop.MockCloudService;
+
+public class NameIndexTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Account account;
+
+	@Before
+	public void setUp() throws IOException {
+		account = new MockCloudService(folder.getRoot()).newAccount("id1", "Account", "token"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Test
+	public void testFind() {
+		NameIndex index = new NameIndex(entries("Budget", "budget 2015", "Accounts", "notes")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals(rows(0, 1), index.find("BUD")); //$NON-NLS-1$
+		// Refined search
+		assertEquals(rows(1), index.find("budget ")); //$NON-NLS-1$
+		// Indexed searches
+		assertEquals(rows(0, 1), index.find("g")); //$NON-NLS-1$
+		assertEquals(rows(2, 3), index.find("s")); //$NON-NLS-1$
+		assertEquals(rows(2), index.find("co")); //$NON-NLS-1$
+		assertEquals(rows(1), index.find("2015")); //$NON-NLS-1$
+		assertEquals(rows(), index.find("xyz")); //$NON-NLS-1$
+		assertEquals(rows(), index.find("budgets")); //$NON-NLS-1$
+		assertEquals(rows(0, 1, 2, 3), index.find("")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		List<Entry> entries = new ArrayList<Entry>();
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder name = new StringBuilder();
+			for (int j = 3+random.nextInt(10); j > 0; j--) {
+				char c = (char) ('a'+random.nextInt(6));
+				name.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+			}
+			entries.add(new Entry(account, name.toString()));
+		}
+		NameIndex index = new NameIndex(entries);
+		String[] searches = {"a", "ab", "abc", "abcd", "b", "BC", "fa", "", "eee", "ee", "abcdef", "c"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$
+		for (int k = 0; k < 2; k++) {
+			for (String searched : searches) {
+				BitSet result = index.find(searched);
+				for (int row = 0; row < entries.size(); row++) {
+					String name = entries.get(row).getDisplayName().toLowerCase(Locale.ROOT);
+					assertEquals(searched+" in "+name, name.contains(searched.toLowerCase(Locale.ROOT)), result.get(row)); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	private List<Entry> entries(String... names) {
+		List<Entry> result = new ArrayList<Entry>();
+		for (String name : names) {
+			result.add(new Entry(account, name));
+		}
+		return result;
+	}
+
+	private static BitSet rows(int... rows) {
+		BitSet result = new BitSet();
+		for (int row : rows) {
+			result.set(row);
+		}
+		return result;
+	}
+}